@@ -44,7 +44,6 @@ public class AndroidLauncher extends AndroidApplication {
         cfg.useAccelerometer = false;
         cfg.useCompass = false;
         cfg.hideStatusBar = true;
-        cfg.numSamples = 16;
 
         // Do the stuff that initialize() would do for you
         requestWindowFeature(Window.FEATURE_NO_TITLE);
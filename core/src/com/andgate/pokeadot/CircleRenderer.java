@@ -0,0 +1,320 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.NumberUtils;
+
+/**
+ * Draws bordered circles as single quads. The ring and the fill are
+ * resolved per pixel by a signed distance shader, so every circle costs
+ * four vertices no matter how large it is on screen, and all circles
+ * queued between begin() and end() go out in one draw call.
+ *
+ * If the shader won't compile on a device, circles are tessellated with
+ * the ShapeRenderer instead, using CircleTessellation to keep the vertex
+ * count of a frame under Constants.CIRCLE_VERTEX_BUDGET.
+ */
+public class CircleRenderer implements Disposable
+{
+    // x, y, local x, local y, outer radius, inner radius, fill, border
+    private static final int VERTEX_SIZE = 8;
+    private static final int VERTICES_PER_CIRCLE = 4;
+    private static final int INDICES_PER_CIRCLE = 6;
+
+    // Extra pixels around each quad, so the anti-aliased edge isn't clipped.
+    private static final float EDGE_PADDING = 1.0f;
+
+    private static final String VERTEX_SHADER =
+              "attribute vec4 a_position;\n"
+            + "attribute vec2 a_local;\n"
+            + "attribute vec2 a_radii;\n"
+            + "attribute vec4 a_color;\n"
+            + "attribute vec4 a_borderColor;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "varying vec2 v_local;\n"
+            + "varying vec2 v_radii;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec4 v_borderColor;\n"
+            + "void main()\n"
+            + "{\n"
+            + "    v_local = a_local;\n"
+            + "    v_radii = a_radii;\n"
+            + "    v_color = a_color;\n"
+            + "    v_borderColor = a_borderColor;\n"
+            + "    gl_Position = u_projTrans * a_position;\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER =
+              "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec2 v_local;\n"
+            + "varying vec2 v_radii;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec4 v_borderColor;\n"
+            + "void main()\n"
+            + "{\n"
+            + "    float dist = length(v_local);\n"
+            + "    float outer = 1.0 - smoothstep(v_radii.x - 0.5, v_radii.x + 0.5, dist);\n"
+            + "    float inner = 1.0 - smoothstep(v_radii.y - 0.5, v_radii.y + 0.5, dist);\n"
+            + "    vec4 color = mix(v_borderColor, v_color, inner);\n"
+            + "    gl_FragColor = vec4(color.rgb, color.a * outer);\n"
+            + "}\n";
+
+    // x, y, outer radius, inner radius, fill, border
+    private static final int FALLBACK_CIRCLE_SIZE = 6;
+
+    private Mesh mesh;
+    private ShaderProgram shader;
+    private final float[] vertices;
+    private final int maxCircles;
+
+    private final ShapeRenderer fallbackShape;
+    private boolean useFallback = false;
+    private float[] fallbackRadii;
+    private int[] fallbackSegments;
+    private int fallbackVertexCount = 0;
+
+    private final Matrix4 projectionMatrix = new Matrix4();
+
+    private int vertexIndex = 0;
+    private boolean drawing = false;
+
+    /** Number of draw calls issued since the last begin(). */
+    public int renderCalls = 0;
+
+    public CircleRenderer(int maxCircles, ShapeRenderer fallbackShape)
+    {
+        // Indices are shorts, so one mesh can address at most 65536 vertices.
+        if(maxCircles * VERTICES_PER_CIRCLE > 65536)
+            throw new IllegalArgumentException("Can't batch more than 16384 circles: " + maxCircles);
+
+        this.maxCircles = maxCircles;
+        this.fallbackShape = fallbackShape;
+
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if(!shader.isCompiled())
+        {
+            Gdx.app.error("CircleRenderer", "Circle shader failed, tessellating instead: " + shader.getLog());
+            shader.dispose();
+            shader = null;
+
+            useFallback = true;
+            vertices = new float[maxCircles * FALLBACK_CIRCLE_SIZE];
+            fallbackRadii = new float[maxCircles];
+            fallbackSegments = new int[maxCircles];
+            return;
+        }
+
+        mesh = new Mesh(false, maxCircles * VERTICES_PER_CIRCLE, maxCircles * INDICES_PER_CIRCLE,
+                new VertexAttribute(Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+                new VertexAttribute(Usage.Generic, 2, "a_local"),
+                new VertexAttribute(Usage.Generic, 2, "a_radii"),
+                new VertexAttribute(Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE),
+                new VertexAttribute(Usage.ColorPacked, 4, "a_borderColor"));
+
+        vertices = new float[maxCircles * VERTICES_PER_CIRCLE * VERTEX_SIZE];
+
+        short[] indices = new short[maxCircles * INDICES_PER_CIRCLE];
+        short vertex = 0;
+        for(int i = 0; i < indices.length; i += INDICES_PER_CIRCLE, vertex += VERTICES_PER_CIRCLE)
+        {
+            indices[i] = vertex;
+            indices[i + 1] = (short)(vertex + 1);
+            indices[i + 2] = (short)(vertex + 2);
+            indices[i + 3] = (short)(vertex + 2);
+            indices[i + 4] = (short)(vertex + 3);
+            indices[i + 5] = vertex;
+        }
+        mesh.setIndices(indices);
+    }
+
+    public void setProjectionMatrix(Matrix4 projection)
+    {
+        if(drawing) flush();
+        projectionMatrix.set(projection);
+    }
+
+    public void begin()
+    {
+        if(drawing)
+            throw new IllegalStateException("CircleRenderer.end must be called before begin.");
+
+        renderCalls = 0;
+        fallbackVertexCount = 0;
+        drawing = true;
+    }
+
+    /**
+     * Queues a circle. Everything is in pixels, colors are packed with
+     * Color.toFloatBits(). The border is the ring between the inner and
+     * the outer radius.
+     */
+    public void draw(float x, float y, float outerRadius, float innerRadius, float fillColor, float borderColor)
+    {
+        if(!drawing)
+            throw new IllegalStateException("CircleRenderer.begin must be called before draw.");
+        if(outerRadius <= 0.0f)
+            return;
+        if(vertexIndex == vertices.length)
+            flush();
+
+        if(useFallback)
+        {
+            final float[] circles = vertices;
+            int i = vertexIndex;
+            circles[i] = x;
+            circles[i + 1] = y;
+            circles[i + 2] = outerRadius;
+            circles[i + 3] = innerRadius;
+            circles[i + 4] = fillColor;
+            circles[i + 5] = borderColor;
+            vertexIndex = i + FALLBACK_CIRCLE_SIZE;
+            return;
+        }
+
+        float extent = outerRadius + EDGE_PADDING;
+
+        putVertex(x - extent, y - extent, -extent, -extent, outerRadius, innerRadius, fillColor, borderColor);
+        putVertex(x + extent, y - extent, extent, -extent, outerRadius, innerRadius, fillColor, borderColor);
+        putVertex(x + extent, y + extent, extent, extent, outerRadius, innerRadius, fillColor, borderColor);
+        putVertex(x - extent, y + extent, -extent, extent, outerRadius, innerRadius, fillColor, borderColor);
+    }
+
+    private void putVertex(float x, float y, float localX, float localY,
+                           float outerRadius, float innerRadius, float fillColor, float borderColor)
+    {
+        final float[] vertices = this.vertices;
+        int i = vertexIndex;
+        vertices[i] = x;
+        vertices[i + 1] = y;
+        vertices[i + 2] = localX;
+        vertices[i + 3] = localY;
+        vertices[i + 4] = outerRadius;
+        vertices[i + 5] = innerRadius;
+        vertices[i + 6] = fillColor;
+        vertices[i + 7] = borderColor;
+        vertexIndex = i + VERTEX_SIZE;
+    }
+
+    public void flush()
+    {
+        if(vertexIndex == 0)
+            return;
+
+        if(useFallback)
+        {
+            flushTessellated();
+            return;
+        }
+
+        int circleCount = vertexIndex / (VERTEX_SIZE * VERTICES_PER_CIRCLE);
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        mesh.setVertices(vertices, 0, vertexIndex);
+        shader.begin();
+        shader.setUniformMatrix("u_projTrans", projectionMatrix);
+        mesh.render(shader, GL20.GL_TRIANGLES, 0, circleCount * INDICES_PER_CIRCLE);
+        shader.end();
+
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+
+        vertexIndex = 0;
+        renderCalls++;
+    }
+
+    private void flushTessellated()
+    {
+        int circleCount = vertexIndex / FALLBACK_CIRCLE_SIZE;
+        for(int i = 0; i < circleCount; i++)
+            fallbackRadii[i] = vertices[i * FALLBACK_CIRCLE_SIZE + 2];
+
+        // Whatever earlier flushes this frame used comes out of the budget,
+        // but every circle still gets at least the minimum segment count.
+        int budget = Math.max(Constants.CIRCLE_VERTEX_BUDGET - fallbackVertexCount, 0);
+        fallbackVertexCount += CircleTessellation.fit(fallbackRadii, fallbackSegments, circleCount, budget);
+
+        fallbackShape.setProjectionMatrix(projectionMatrix);
+        fallbackShape.begin(ShapeRenderer.ShapeType.Filled);
+        for(int i = 0; i < circleCount; i++)
+        {
+            int c = i * FALLBACK_CIRCLE_SIZE;
+            float x = vertices[c];
+            float y = vertices[c + 1];
+            int segments = fallbackSegments[i];
+
+            setShapeColor(vertices[c + 5]);
+            fallbackShape.circle(x, y, vertices[c + 2], segments);
+
+            if(vertices[c + 3] > 0.0f)
+            {
+                setShapeColor(vertices[c + 4]);
+                fallbackShape.circle(x, y, vertices[c + 3], segments);
+            }
+        }
+        fallbackShape.end();
+
+        vertexIndex = 0;
+        renderCalls++;
+    }
+
+    private void setShapeColor(float packedColor)
+    {
+        int abgr = NumberUtils.floatToIntColor(packedColor);
+        fallbackShape.setColor((abgr & 0xff) / 255.0f,
+                               ((abgr >>> 8) & 0xff) / 255.0f,
+                               ((abgr >>> 16) & 0xff) / 255.0f,
+                               ((abgr >>> 24) & 0xff) / 255.0f);
+    }
+
+    public boolean isTessellating()
+    {
+        return useFallback;
+    }
+
+    public void end()
+    {
+        if(!drawing)
+            throw new IllegalStateException("CircleRenderer.begin must be called before end.");
+
+        flush();
+        drawing = false;
+    }
+
+    public int getMaxCircles()
+    {
+        return maxCircles;
+    }
+
+    @Override
+    public void dispose()
+    {
+        if(mesh != null) mesh.dispose();
+        if(shader != null) shader.dispose();
+    }
+}
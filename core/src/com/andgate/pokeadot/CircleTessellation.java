@@ -0,0 +1,69 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Picks how many segments a tessellated circle gets. Segment count follows
+ * the on-screen radius, so a dot that has shrunk to a few pixels isn't
+ * drawn with a hundred slivers, and the whole frame is kept under a vertex
+ * budget by scaling every circle down together.
+ */
+public class CircleTessellation
+{
+    // ShapeRenderer emits a triangle per segment, and a pokable is two discs.
+    public static final int VERTICES_PER_SEGMENT = 3 * 2;
+
+    public static int segmentsFor(float radiusInPixels)
+    {
+        int segments = MathUtils.ceil(MathUtils.PI2 * radiusInPixels / Constants.CIRCLE_SEGMENT_LENGTH);
+        return MathUtils.clamp(segments, Constants.MINIMUM_CIRCLE_SEGMENTS, Constants.MAXIMUM_CIRCLE_SEGMENTS);
+    }
+
+    /**
+     * Fills segments with the count for each radius, then, if the total
+     * would go over the vertex budget, scales all of them by the same
+     * factor. Small circles hit the minimum first and the large ones
+     * give up the rest.
+     *
+     * @return the number of vertices the circles will take
+     */
+    public static int fit(float[] radiiInPixels, int[] segments, int count, int vertexBudget)
+    {
+        int total = 0;
+        for(int i = 0; i < count; i++)
+        {
+            segments[i] = segmentsFor(radiiInPixels[i]);
+            total += segments[i];
+        }
+
+        int budget = vertexBudget / VERTICES_PER_SEGMENT;
+        if(total <= budget)
+            return total * VERTICES_PER_SEGMENT;
+
+        float scale = (float)budget / (float)total;
+        total = 0;
+        for(int i = 0; i < count; i++)
+        {
+            segments[i] = Math.max((int)(segments[i] * scale), Constants.MINIMUM_CIRCLE_SEGMENTS);
+            total += segments[i];
+        }
+
+        return total * VERTICES_PER_SEGMENT;
+    }
+}
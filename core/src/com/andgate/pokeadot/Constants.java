@@ -1,5 +1,6 @@
 package com.andgate.pokeadot;
 
+import com.andgate.pokeadot.engine.EngineConstants;
 import com.badlogic.gdx.graphics.Color;
 
 public class Constants
@@ -7,26 +8,64 @@ public class Constants
     public static final String GAME_NAME = "Poke-A-Dot";
     public static final Color BG_COLOR = new Color(0.15f, 0.15f, 0.15f, 1.0f);
 
-    public static final int WORLD_HEIGHT = 30;
+    public static final int WORLD_HEIGHT = EngineConstants.WORLD_HEIGHT;
 
-    public final static float MINIMUM_SPAWN_TIME = 0.5f;
-    public final static float MAXIMUM_SPAWN_TIME = 1.5f;
-    public final static float MINIMUM_LIFE_TIME = 1.0f;
-    public final static float MAXIMUM_LIFE_TIME = 4.0f;
-    public final static int MINIMUM_SPAWN_COUNT = 3;
-    public final static int MAXIMUM_SPAWN_COUNT = 10;
-    public final static float MINIMUM_CIRCLE_RADIUS = 3.0f;
-    public final static float MAXIMUM_CIRCLE_RADIUS = 8.0f;
+    public final static float MINIMUM_SPAWN_TIME = EngineConstants.MINIMUM_SPAWN_TIME;
+    public final static float MAXIMUM_SPAWN_TIME = EngineConstants.MAXIMUM_SPAWN_TIME;
+    public final static float MINIMUM_LIFE_TIME = EngineConstants.MINIMUM_LIFE_TIME;
+    public final static float MAXIMUM_LIFE_TIME = EngineConstants.MAXIMUM_LIFE_TIME;
+    public final static int MINIMUM_SPAWN_COUNT = EngineConstants.MINIMUM_SPAWN_COUNT;
+    public final static int MAXIMUM_SPAWN_COUNT = EngineConstants.MAXIMUM_SPAWN_COUNT;
+    public final static float MINIMUM_CIRCLE_RADIUS = EngineConstants.MINIMUM_CIRCLE_RADIUS;
+    public final static float MAXIMUM_CIRCLE_RADIUS = EngineConstants.MAXIMUM_CIRCLE_RADIUS;
     public static final float CIRCLE_BORDER_THICKNESS = 0.5f;
-    public static final int CIRCLE_SEGMENTS = 100;
+
+    public final static float SWARM_MINIMUM_SPAWN_TIME = EngineConstants.SWARM_MINIMUM_SPAWN_TIME;
+    public final static float SWARM_MAXIMUM_SPAWN_TIME = EngineConstants.SWARM_MAXIMUM_SPAWN_TIME;
+    public final static float SWARM_MINIMUM_LIFE_TIME = EngineConstants.SWARM_MINIMUM_LIFE_TIME;
+    public final static float SWARM_MAXIMUM_LIFE_TIME = EngineConstants.SWARM_MAXIMUM_LIFE_TIME;
+    public final static int SWARM_MINIMUM_SPAWN_COUNT = EngineConstants.SWARM_MINIMUM_SPAWN_COUNT;
+    public final static int SWARM_MAXIMUM_SPAWN_COUNT = EngineConstants.SWARM_MAXIMUM_SPAWN_COUNT;
+    public final static float SWARM_MINIMUM_CIRCLE_RADIUS = EngineConstants.SWARM_MINIMUM_CIRCLE_RADIUS;
+    public final static float SWARM_MAXIMUM_CIRCLE_RADIUS = EngineConstants.SWARM_MAXIMUM_CIRCLE_RADIUS;
+    public static final float SWARM_CIRCLE_BORDER_THICKNESS = 0.08f;
+    public static final float SWARM_TIME_LIMIT = EngineConstants.SWARM_TIME_LIMIT;
+    public static final int SWARM_MINIMUM_POKABLES = 100;
+    public static final int SWARM_MAXIMUM_POKABLES = 10000;
+    public static final int SWARM_POKABLES_INCREASE = 100;
+    public static final float SWARM_POKABLES_DECREASE = 0.85f;
+    public static final int SWARM_INCREASE_DELAY = 60; // frames
+    public static final int PARALLEL_THRESHOLD = EngineConstants.PARALLEL_THRESHOLD;
+    public static final int MINIMUM_CIRCLE_SEGMENTS = 8;
+    public static final int MAXIMUM_CIRCLE_SEGMENTS = 100;
+    public static final float CIRCLE_SEGMENT_LENGTH = 4.0f; // pixels
+    public static final int CIRCLE_VERTEX_BUDGET = 30000; // per frame
+    public static final int CIRCLE_BATCH_SIZE = 1024;
+
+    public static final float SIMULATION_STEP = EngineConstants.SIMULATION_STEP;
+    public static final int MAXIMUM_SIMULATION_STEPS = EngineConstants.MAXIMUM_SIMULATION_STEPS;
+
+    public static final float TARGET_FRAME_TIME = 1.0f / 60.0f;
+    public static final float FRAME_TIME_TOLERANCE = 1.15f;
+    public static final int FRAME_TIME_SAMPLES = 30;
+    public static final float MINIMUM_RESOLUTION_SCALE = 0.5f;
+    public static final float RESOLUTION_SCALE_STEP = 0.1f;
+    public static final int RESOLUTION_UPSCALE_DELAY = 120; // frames
+    public static final int MAXIMUM_RESOLUTION_UPSCALE_DELAY = 1920; // frames
+
     public static final Color DIM_SCREEN_COLOR = new Color(0.0f, 0.0f, 0.0f, 0.5f);
-    public static final float BUTTON_LENGTH = 4.0f;
+    public static final float BUTTON_LENGTH = EngineConstants.SPAWN_BOTTOM;
 
     public static final float DEFAULT_VOLUME = 1.0f;
     public static final float RADIUS_PERCENT_TO_PITCH = -2.0f;
     public static final float PITCH_ADJUSTMENT = 2.0f;
     public static final float DEFAULT_PAN = 1.0f;
 
+    public static final String REPLAY_LOCATION = "replays/last.padr";
+    public static final String BEST_REPLAY_LOCATION = "replays/best.padr";
+    public static final Color GHOST_FILL_COLOR = new Color(1.0f, 1.0f, 1.0f, 0.15f);
+    public static final Color GHOST_BORDER_COLOR = new Color(1.0f, 1.0f, 1.0f, 0.35f);
+
     public static final String FONT_LOCATION = "data/fonts/Ubuntu-Title.ttf";
     public static final int LARGE_FONT_SIZE = 10;
     public static final int MEDIUM_FONT_SIZE = 5;
@@ -0,0 +1,87 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+/**
+ * Picks how many pokables SWARM keeps alive from the frame time. When the
+ * rolling average of frame times goes over budget, the cap drops to a
+ * fraction of the live population; after a while on time, and only while
+ * the cap is what's holding the population back, it goes up by a fixed
+ * step. Dropping fast and climbing slowly finds the most the device can
+ * take without oscillating wildly around it.
+ */
+public class DensityController
+{
+    private final FrameTimeWindow frameTimes = new FrameTimeWindow();
+
+    private int cap = Constants.SWARM_MAXIMUM_POKABLES;
+    private int framesSinceChange = 0;
+    private int framesOnTime = 0;
+
+    private int peakPopulation = 0;
+
+    /** @param frameTime seconds the last frame took to render, see PokeADot.frameWorkTime */
+    public void update(float frameTime, int population)
+    {
+        frameTimes.add(frameTime);
+
+        framesSinceChange++;
+        peakPopulation = Math.max(peakPopulation, population);
+
+        boolean onTime = frameTimes.isOnTime();
+
+        if(onTime)
+            framesOnTime++;
+        else
+            framesOnTime = 0;
+
+        // Wait for a full window of samples under the current cap before judging it.
+        if(framesSinceChange < frameTimes.getLength())
+            return;
+
+        if(!onTime)
+        {
+            setCap((int)(Math.min(population, cap) * Constants.SWARM_POKABLES_DECREASE));
+        }
+        else if(framesOnTime >= Constants.SWARM_INCREASE_DELAY && population >= cap)
+        {
+            setCap(cap + Constants.SWARM_POKABLES_INCREASE);
+        }
+    }
+
+    private void setCap(int newCap)
+    {
+        newCap = Math.max(newCap, Constants.SWARM_MINIMUM_POKABLES);
+        newCap = Math.min(newCap, Constants.SWARM_MAXIMUM_POKABLES);
+        if(newCap == cap)
+            return;
+
+        cap = newCap;
+        framesSinceChange = 0;
+        framesOnTime = 0;
+    }
+
+    public int getCap()
+    {
+        return cap;
+    }
+
+    public int getPeakPopulation()
+    {
+        return peakPopulation;
+    }
+}
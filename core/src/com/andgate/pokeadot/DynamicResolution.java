@@ -0,0 +1,156 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * An offscreen target for the playfield whose resolution follows the
+ * frame time, the time each frame spends on its own work rather than the
+ * time between frames, which includes waiting for vsync or the pacer.
+ * When the rolling average of frame times goes over budget
+ * the target shrinks a step. Once frames have been on time for a while
+ * it tries a step back up. If that step goes over budget right away, the
+ * wait before the next try doubles, so a device sitting on the edge
+ * doesn't flicker between two sizes.
+ */
+public class DynamicResolution implements Disposable
+{
+    private final FrameTimeWindow frameTimes = new FrameTimeWindow();
+
+    private float scale = 1.0f;
+    private int framesSinceChange = 0;
+    private int framesOnTime = 0;
+    private int upscaleDelay = Constants.RESOLUTION_UPSCALE_DELAY;
+    private boolean probingUp = false;
+
+    private FrameBuffer target;
+
+    /** @param frameTime seconds the last frame took to render, see PokeADot.frameWorkTime */
+    public void update(float frameTime)
+    {
+        frameTimes.add(frameTime);
+
+        framesSinceChange++;
+
+        boolean onTime = frameTimes.isOnTime();
+
+        if(onTime)
+            framesOnTime++;
+        else
+            framesOnTime = 0;
+
+        // Wait for a full window of samples at the current size before judging it.
+        if(framesSinceChange < frameTimes.getLength())
+            return;
+
+        if(!onTime)
+        {
+            if(probingUp)
+                upscaleDelay = Math.min(upscaleDelay * 2, Constants.MAXIMUM_RESOLUTION_UPSCALE_DELAY);
+            probingUp = false;
+            setScale(scale - Constants.RESOLUTION_SCALE_STEP);
+        }
+        else if(framesOnTime >= upscaleDelay && scale < 1.0f)
+        {
+            probingUp = true;
+            setScale(scale + Constants.RESOLUTION_SCALE_STEP);
+        }
+        else if(probingUp && framesSinceChange >= upscaleDelay)
+        {
+            // The last step up held, so the next one can come sooner again.
+            probingUp = false;
+            upscaleDelay = Constants.RESOLUTION_UPSCALE_DELAY;
+        }
+    }
+
+    private void setScale(float newScale)
+    {
+        newScale = MathUtils.clamp(newScale, Constants.MINIMUM_RESOLUTION_SCALE, 1.0f);
+        if(newScale == scale)
+            return;
+
+        scale = newScale;
+        framesSinceChange = 0;
+        framesOnTime = 0;
+    }
+
+    public float getAverageFrameTime()
+    {
+        return frameTimes.getAverage();
+    }
+
+    public float getScale()
+    {
+        return scale;
+    }
+
+    /** Binds the target, resized if the scale or the window changed, and clears it. */
+    public void begin()
+    {
+        int width = Math.max(MathUtils.round(Gdx.graphics.getWidth() * scale), 1);
+        int height = Math.max(MathUtils.round(Gdx.graphics.getHeight() * scale), 1);
+
+        if(target == null || target.getWidth() != width || target.getHeight() != height)
+        {
+            dispose();
+            target = new FrameBuffer(Pixmap.Format.RGB888, width, height, false);
+            target.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        }
+
+        target.begin();
+        Gdx.gl20.glClearColor(Constants.BG_COLOR.r, Constants.BG_COLOR.g, Constants.BG_COLOR.b, 1);
+        Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    }
+
+    public void end()
+    {
+        target.end();
+    }
+
+    /** Stretches the last rendered target over the whole window. */
+    public void draw(Batch batch)
+    {
+        if(target == null)
+            return;
+
+        Texture texture = target.getColorBufferTexture();
+
+        batch.disableBlending();
+        // Frame buffer textures are upside down.
+        batch.draw(texture, 0.0f, 0.0f, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(),
+                0, 0, texture.getWidth(), texture.getHeight(), false, true);
+        batch.enableBlending();
+    }
+
+    @Override
+    public void dispose()
+    {
+        if(target != null)
+        {
+            target.dispose();
+            target = null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.badlogic.gdx.Gdx;
+
+/**
+ * Paces frames and measures how evenly they arrive.
+ *
+ * VSYNC leaves the waiting to the display, UNCAPPED doesn't wait at all,
+ * and TARGET holds a fixed rate on its own: it sleeps through most of
+ * the frame and spins through the last couple of milliseconds, since
+ * sleep alone overshoots by more than a frame at high refresh rates.
+ *
+ * Frame-to-frame jitter is tracked in every mode, along with the render
+ * pipeline's draw calls and renderer switches.
+ */
+public class FramePacer
+{
+    public enum Mode
+    {
+        VSYNC,
+        TARGET,
+        UNCAPPED
+    }
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long SPIN_THRESHOLD = 2 * NANOS_PER_MILLI;
+    private static final long REPORT_INTERVAL = 5 * NANOS_PER_SECOND;
+
+    private final Mode mode;
+    private final long framePeriod;
+    private final boolean logging;
+
+    private long nextDeadline = 0L;
+    private long lastFrame = 0L;
+    private long lastReport = 0L;
+
+    // Frame intervals since the last report, in nanoseconds.
+    private int frames = 0;
+    private double intervalMean = 0.0;
+    private double intervalSquares = 0.0;
+    private long intervalMin = Long.MAX_VALUE;
+    private long intervalMax = 0L;
+
+    // Render pipeline work since the last report. There's one more of these
+    // frames than intervals, so they're counted on their own.
+    private int pipelineFrames = 0;
+    private long drawCalls = 0L;
+    private int drawCallsMax = 0;
+    private long targetSwitches = 0L;
+    private int targetSwitchesMax = 0;
+
+    public FramePacer(Mode mode, int targetFps, boolean logging)
+    {
+        if(mode == Mode.TARGET && targetFps <= 0)
+            throw new IllegalArgumentException("Target frame rate must be positive: " + targetFps);
+
+        this.mode = mode;
+        this.framePeriod = mode == Mode.TARGET ? NANOS_PER_SECOND / targetFps : 0L;
+        this.logging = logging;
+    }
+
+    public static FramePacer vsync()
+    {
+        return new FramePacer(Mode.VSYNC, 0, false);
+    }
+
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /** Call once at the end of every frame. */
+    public void endFrame()
+    {
+        if(mode == Mode.TARGET)
+            waitForDeadline();
+
+        long now = System.nanoTime();
+        if(lastFrame != 0L)
+            recordInterval(now - lastFrame);
+        else
+            lastReport = now;
+        lastFrame = now;
+
+        if(logging && now - lastReport >= REPORT_INTERVAL)
+        {
+            Gdx.app.log("FramePacer", getReport());
+            resetStats();
+            lastReport = now;
+        }
+    }
+
+    private void waitForDeadline()
+    {
+        long now = System.nanoTime();
+
+        if(nextDeadline == 0L || now - nextDeadline > framePeriod)
+        {
+            // First frame, or we fell more than a frame behind. Don't try
+            // to catch up with a burst of short frames.
+            nextDeadline = now + framePeriod;
+            return;
+        }
+
+        long remaining = nextDeadline - now;
+        if(remaining > SPIN_THRESHOLD)
+        {
+            try
+            {
+                Thread.sleep((remaining - SPIN_THRESHOLD) / NANOS_PER_MILLI);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        while(System.nanoTime() < nextDeadline)
+            Thread.yield();
+
+        nextDeadline += framePeriod;
+    }
+
+    /** Call once a frame with what the render pipeline did. */
+    public void recordPipeline(int frameDrawCalls, int frameTargetSwitches)
+    {
+        pipelineFrames++;
+        drawCalls += frameDrawCalls;
+        targetSwitches += frameTargetSwitches;
+        if(frameDrawCalls > drawCallsMax) drawCallsMax = frameDrawCalls;
+        if(frameTargetSwitches > targetSwitchesMax) targetSwitchesMax = frameTargetSwitches;
+    }
+
+    private void recordInterval(long interval)
+    {
+        // Welford's running mean and variance.
+        frames++;
+        double delta = interval - intervalMean;
+        intervalMean += delta / frames;
+        intervalSquares += delta * (interval - intervalMean);
+
+        if(interval < intervalMin) intervalMin = interval;
+        if(interval > intervalMax) intervalMax = interval;
+    }
+
+    private void resetStats()
+    {
+        frames = 0;
+        intervalMean = 0.0;
+        intervalSquares = 0.0;
+        intervalMin = Long.MAX_VALUE;
+        intervalMax = 0L;
+        pipelineFrames = 0;
+        drawCalls = 0L;
+        drawCallsMax = 0;
+        targetSwitches = 0L;
+        targetSwitchesMax = 0;
+    }
+
+    /** Mean frame interval since the last report, in milliseconds. */
+    public float getMeanFrameTime()
+    {
+        return (float)(intervalMean / NANOS_PER_MILLI);
+    }
+
+    /** Standard deviation of the frame interval since the last report, in milliseconds. */
+    public float getJitter()
+    {
+        if(frames < 2)
+            return 0.0f;
+        return (float)(Math.sqrt(intervalSquares / (frames - 1)) / NANOS_PER_MILLI);
+    }
+
+    public String getReport()
+    {
+        if(frames == 0)
+            return mode + ": no frames";
+
+        return mode + ": " + frames + " frames"
+                + ", mean " + getMeanFrameTime() + "ms"
+                + ", jitter " + getJitter() + "ms"
+                + ", min " + (float)intervalMin / NANOS_PER_MILLI + "ms"
+                + ", max " + (float)intervalMax / NANOS_PER_MILLI + "ms"
+                + ", draw calls " + (float)drawCalls / Math.max(pipelineFrames, 1) + " (max " + drawCallsMax + ")"
+                + ", switches " + (float)targetSwitches / Math.max(pipelineFrames, 1) + " (max " + targetSwitchesMax + ")";
+    }
+}
@@ -0,0 +1,58 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+/**
+ * The average of the last few frame times, and whether it fits the frame
+ * budget. Feed it PokeADot.frameWorkTime, the time between frames also
+ * counts waiting on vsync or the pacer.
+ */
+public class FrameTimeWindow
+{
+    private final float[] frameTimes = new float[Constants.FRAME_TIME_SAMPLES];
+    private int frameTimeIndex = 0;
+    private int frameTimeCount = 0;
+    private float frameTimeSum = 0.0f;
+
+    public void add(float frameTime)
+    {
+        if(frameTimeCount == frameTimes.length)
+            frameTimeSum -= frameTimes[frameTimeIndex];
+        else
+            frameTimeCount++;
+
+        frameTimes[frameTimeIndex] = frameTime;
+        frameTimeSum += frameTime;
+        frameTimeIndex = (frameTimeIndex + 1) % frameTimes.length;
+    }
+
+    public float getAverage()
+    {
+        return frameTimeCount > 0 ? frameTimeSum / frameTimeCount : 0.0f;
+    }
+
+    public boolean isOnTime()
+    {
+        return getAverage() <= Constants.TARGET_FRAME_TIME * Constants.FRAME_TIME_TOLERANCE;
+    }
+
+    /** How many frames a full window holds. */
+    public int getLength()
+    {
+        return frameTimes.length;
+    }
+}
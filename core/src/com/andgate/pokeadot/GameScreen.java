@@ -16,16 +16,26 @@
 
 package com.andgate.pokeadot;
 
+import com.andgate.pokeadot.engine.EngineConfig;
+import com.andgate.pokeadot.engine.EngineListener;
+import com.andgate.pokeadot.engine.GameEngine;
+import com.andgate.pokeadot.engine.GameMode;
+import com.andgate.pokeadot.engine.PokableStore;
+import com.andgate.pokeadot.engine.SessionRandom;
+import com.andgate.pokeadot.engine.SessionRecorder;
+import com.andgate.pokeadot.engine.TouchQueue;
 import com.andgate.pokeadot.util.HSL;
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.math.Circle;
-import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
@@ -33,9 +43,12 @@ import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.text.DecimalFormat;
-import java.util.Iterator;
 
 
 public class GameScreen implements Screen
@@ -63,12 +76,22 @@ public class GameScreen implements Screen
     Stage pauseButtonStage;
     Stage gameOverStage;
 
-    int pokablesExpired;
-    Array<Pokable> pokables;
+    // The game rules run in the engine, this screen only draws it,
+    // feeds it touches and plays its sounds.
+    GameEngine engine;
+    // Writes the session to Constants.REPLAY_LOCATION, null if it couldn't.
+    private SessionRecorder recorder;
+    // The best run to race, only in GHOST.
+    private Ghost ghost;
 
-    private float spawnWaitTime;
-    private float nextSpawnTime;
-    private int spawnCount;
+    // Only SWARM has one, it keeps the population within the frame budget.
+    private DensityController density;
+    private float borderThickness = Constants.CIRCLE_BORDER_THICKNESS;
+
+    // Pokable colors by hue, so drawing doesn't convert HSL every frame.
+    private static final int HUE_STEPS = 256;
+    private final float[] hueFillColors = new float[HUE_STEPS];
+    private final float[] hueBorderColors = new float[HUE_STEPS];
 
     private static final String HIT_COUNT_TEXT = "Poked";
     private static final String POINTS_TEXT = "Points";
@@ -78,12 +101,25 @@ public class GameScreen implements Screen
     private static final String POKE_ANYWHERE_TEXT = "Poke circles to start.";
     private static final DecimalFormat doubleDecimal = new DecimalFormat("0.00");
 
+    private final HudNumber timeNumber = new HudNumber(2, "s");
+    private final HudNumber pointsNumber = new HudNumber(0, "p");
+    private final HudNumber ghostNumber = new HudNumber("ghost ", 2, "s");
+
+    // The playfield can't change while paused or over, so the last frame
+    // is kept here and drawn back instead of the whole scene.
+    private FrameBuffer frozenFrame;
+    private boolean frameFrozen = false;
+    private boolean capturingFrame = false;
+
+    private final Array<RenderPipeline.RenderPass> renderPasses = new Array<RenderPipeline.RenderPass>();
+
+    private static final long MAXIMUM_EVENT_AGE = 1000000000L; // nanoseconds
     private static final float GAME_END_PAUSE = 10.0f; // seconds
     private float gameEndWait = 0.0f;
     private static final float TAP_TO_END_START_TIME = 1.0f; //seconds
     private boolean tapToEnd = false;
 
-    public GameScreen(final PokeADot newGame, PokeADot.GameMode newMode)
+    public GameScreen(final PokeADot newGame, GameMode newMode)
     {
         game = newGame;
         game.mode = newMode;
@@ -92,17 +128,57 @@ public class GameScreen implements Screen
         im.addProcessor(new GameInputProcessor());
         Gdx.input.setInputProcessor(im);
 
-        pokables = new Array<Pokable>();
-        pokablesExpired = 0;
-        forceSpawn();
+        if(newMode == GameMode.GHOST)
+            ghost = Ghost.load();
+
+        if(ghost != null)
+        {
+            game.sessionSeed = ghost.getSeed();
+            game.ghostTime = ghost.getTime();
+        }
+        else
+        {
+            game.sessionSeed = newMode == GameMode.DAILY
+                    ? SessionRandom.dailySeed()
+                    : SessionRandom.randomSeed();
+        }
+        engine = new GameEngine(createEngineConfig(newMode), game.sessionSeed);
+        engine.setListener(new SoundListener());
+        startRecording();
+
+        if(newMode == GameMode.SWARM)
+        {
+            density = new DensityController();
+            borderThickness = Constants.SWARM_CIRCLE_BORDER_THICKNESS;
+        }
+
+        buildHueColors();
 
         buildStages();
+        buildRenderPasses();
 
         /*im.setProcessors(new Array<InputProcessor>(
                 new InputProcessor[]{new GameInputProcessor()}
         ));*/
     }
 
+    /** Records the session over the last one, a failure only loses the recording. */
+    private void startRecording()
+    {
+        try
+        {
+            FileHandle file = Gdx.files.local(Constants.REPLAY_LOCATION);
+            file.parent().mkdirs();
+            FileChannel channel = new FileOutputStream(file.file()).getChannel();
+            recorder = new SessionRecorder(channel, game.mode.ordinal());
+            engine.setRecorder(recorder);
+        }
+        catch (IOException e)
+        {
+            Gdx.app.error("GameScreen", "Can't record the session: " + e.getMessage());
+        }
+    }
+
     private void buildStages()
     {
         buildIntroStage();
@@ -121,7 +197,7 @@ public class GameScreen implements Screen
 
     private void buildIntroStage()
     {
-        introStage = new Stage();
+        introStage = game.createStage();
         //introStage.getViewport().setCamera(camera);
 
         Label.LabelStyle labelStyle = new Label.LabelStyle(game.mediumSmallFont, Color.WHITE);
@@ -139,7 +215,7 @@ public class GameScreen implements Screen
 
     private void buildPauseButtonScene()
     {
-        pauseButtonStage = new Stage();
+        pauseButtonStage = game.createStage();
         //pauseButtonStage.getViewport().setCamera(camera);
 
         ImageButton pauseButton = game.createIconButton(Constants.PAUSE_ICON_LOCATION, Constants.PAUSE_ICON_DOWN_LOCATION,
@@ -165,7 +241,7 @@ public class GameScreen implements Screen
 
     private void buildPauseMenuScene()
     {
-        pauseMenuStage = new Stage();
+        pauseMenuStage = game.createStage();
         //pauseMenuStage.getViewport().setCamera(camera);
 
         ImageButton playButtonWrapper = game.createIconButton(Constants.PLAY_ICON_LOCATION, Constants.PLAY_ICON_DOWN_LOCATION,
@@ -187,6 +263,7 @@ public class GameScreen implements Screen
                     @Override
                     public void clicked(InputEvent event, float x, float y) {
                         game.buttonPressedSound.play();
+                        engine.end();
                         gameState = GameState.OVER;
                     }
                 });
@@ -209,7 +286,7 @@ public class GameScreen implements Screen
 
     private void buildGameOverStage()
     {
-        gameOverStage = new Stage();
+        gameOverStage = game.createStage();
         //gameOverStage.getViewport().setCamera(camera);
 
         final Label.LabelStyle largeLabelStyle = new Label.LabelStyle(game.largeFont, new Color(1.0f, 0.0f, 0.0f, 0.7f));
@@ -229,7 +306,7 @@ public class GameScreen implements Screen
 
     private void buildGameOverContinueStage()
     {
-        gameOverStage = new Stage();
+        gameOverStage = game.createStage();
         //gameOverStage.getViewport().setCamera(camera);
 
         final Label.LabelStyle largeLabelStyle = new Label.LabelStyle(game.largeFont, new Color(0.7f, 0.0f, 0.0f, 0.7f));
@@ -252,7 +329,6 @@ public class GameScreen implements Screen
     {
         switch(gameState) {
             case INTRO:
-                updateIntro();
                 renderGraphics();
                 break;
             case RUN:
@@ -268,127 +344,313 @@ public class GameScreen implements Screen
                 renderGraphics();
                 break;
         }
+
+        game.latency.frameSubmitted();
 	}
 
-    private void update(float delta)
+    private EngineConfig createEngineConfig(GameMode mode)
     {
-        game.gameTime += delta;
-        updatePokables(delta);
-        clearExpiredCircles();
+        if(ghost != null)
+        {
+            // Waves are placed to fit the world, so racing the ghost's
+            // waves takes the ghost's world, whatever this screen's shape.
+            EngineConfig config = new EngineConfig(ghost.replay.config);
+            config.backgroundWaves = true;
+            return config;
+        }
 
-        modeUpdate(delta);
+        GameEngine.Rules rules = mode == GameMode.PRACTICE
+                ? GameEngine.Rules.ENDLESS
+                : GameEngine.Rules.SURVIVAL;
+        EngineConfig config = new EngineConfig(rules, game.worldWidth, game.worldHeight);
+        // Keep wave generation off the render thread.
+        config.backgroundWaves = true;
 
-        stepSpawn(delta);
+        if(mode == GameMode.SWARM)
+        {
+            config.rules = GameEngine.Rules.ENDLESS;
+            config.timeLimit = Constants.SWARM_TIME_LIMIT;
+            config.minimumSpawnTime = Constants.SWARM_MINIMUM_SPAWN_TIME;
+            config.maximumSpawnTime = Constants.SWARM_MAXIMUM_SPAWN_TIME;
+            config.minimumLifeTime = Constants.SWARM_MINIMUM_LIFE_TIME;
+            config.maximumLifeTime = Constants.SWARM_MAXIMUM_LIFE_TIME;
+            config.minimumSpawnCount = Constants.SWARM_MINIMUM_SPAWN_COUNT;
+            config.maximumSpawnCount = Constants.SWARM_MAXIMUM_SPAWN_COUNT;
+            config.minimumRadius = Constants.SWARM_MINIMUM_CIRCLE_RADIUS;
+            config.maximumRadius = Constants.SWARM_MAXIMUM_CIRCLE_RADIUS;
+
+            if(Gdx.app.getType() == Application.ApplicationType.Desktop)
+                config.parallelThreshold = Constants.PARALLEL_THRESHOLD;
+        }
+
+        return config;
     }
 
-    private void updateIntro()
+    private void buildHueColors()
     {
-        update(0.0f);
+        HSL hsl = new HSL();
+        Color color = new Color();
 
-        if(Gdx.input.isTouched())
+        for (int i = 0; i < HUE_STEPS; i++)
         {
-            gameState = GameState.RUN;
-            im.setProcessors(
-                    new Array<InputProcessor>(
-                            new InputProcessor[]{pauseButtonStage, new GameInputProcessor()}
-                    )
-            );
+            hsl.h = (float) i / HUE_STEPS;
+            hsl.s = 0.7f;
+            hsl.l = 0.7f;
+            hsl.toRGB(color);
+
+            hueFillColors[i] = color.toFloatBits();
+            hueBorderColors[i] = Color.toFloatBits(Math.max(color.r - 0.3f, 0.0f),
+                                                   Math.max(color.g - 0.3f, 0.0f),
+                                                   Math.max(color.b - 0.3f, 0.0f),
+                                                   color.a);
         }
     }
 
-    private void clearExpiredCircles()
+    private void update(float delta)
     {
-        Iterator<Pokable> it = pokables.iterator();
-        while(it.hasNext())
+        if(density != null)
         {
-            Pokable pokable = it.next();
+            density.update(game.frameWorkTime, engine.pokables.size);
+            engine.setPopulationCap(density.getCap());
+            game.peakPokables = density.getPeakPopulation();
+        }
 
-            if(pokable.getState() == Pokable.PokableState.DESTRUCT)
-            {
-                it.remove();
-            }
-            if(pokable.getState() == Pokable.PokableState.EXPIRED)
-            {
-                it.remove();
-                pokablesExpired++;
-            }
+        engine.advance(delta, TimeUtils.nanoTime());
+        if(ghost != null)
+            ghost.advanceTo(engine.tick);
+        syncScore();
+
+        if (engine.isOver())
+        {
+            gameState = GameState.OVER;
         }
     }
 
-    private void modeUpdate(float delta)
+    private void syncScore()
     {
-        switch(game.mode)
-        {
-            case PLAY:
-                playUpdate(delta);
-                break;
-            case PRACTICE:
-                practiceUpdate(delta);
-                break;
-            case NONE:
-                gameState = GameState.OVER;
-                break;
-        }
+        game.hits = engine.hits;
+        game.missed = engine.missed;
+        game.gameTime = engine.gameTime;
+        game.dropped = engine.dropped;
+        game.throttled = engine.throttled;
+        game.waveStalls = engine.getWaveStalls();
+        game.latency.coalesced = engine.coalesced;
+        game.latency.overflows = engine.touches.overflows;
     }
 
-    private void playUpdate(float delta)
+    private void startRunning()
     {
-        if(pokablesExpired > 0)
-        {
-            gameState = GameState.OVER;
-        }
+        gameState = GameState.RUN;
+        im.setProcessors(
+                new Array<InputProcessor>(
+                        new InputProcessor[]{pauseButtonStage, new GameInputProcessor()}
+                )
+        );
     }
 
-    private void practiceUpdate(float delta)
+    private void buildRenderPasses()
     {
-        // Nothing to update, just here to look pretty for now.
+        addRenderPass(new GamePass(RenderPipeline.Target.PLAYFIELD) {
+            @Override
+            public boolean isVisible() {
+                return isSceneVisible();
+            }
+
+            @Override
+            public void render(PokeADot game) {
+                renderPokables();
+            }
+        });
+
+        addRenderPass(new GamePass(RenderPipeline.Target.BATCH) {
+            @Override
+            public boolean isVisible() {
+                return isSceneVisible();
+            }
+
+            @Override
+            public void render(PokeADot game) {
+                game.resolution.draw(game.batch);
+            }
+        });
+
+        addRenderPass(new GamePass(RenderPipeline.Target.BATCH) {
+            @Override
+            public boolean isVisible() {
+                return isSceneVisible();
+            }
+
+            @Override
+            public void render(PokeADot game) {
+                renderText();
+            }
+        });
+
+        addRenderPass(new GamePass(RenderPipeline.Target.BATCH) {
+            @Override
+            public boolean isVisible() {
+                return isSceneVisible() && gameState != GameState.RUN;
+            }
+
+            @Override
+            public void render(PokeADot game) {
+                game.batch.draw(game.pauseBG, 0.0f, 0.0f, Gdx.graphics.getWidth(), Gdx.graphics.getHeight()); // dims the screen
+            }
+        });
+
+        addRenderPass(new GamePass(RenderPipeline.Target.BATCH) {
+            @Override
+            public boolean isVisible() {
+                return frameFrozen && !capturingFrame;
+            }
+
+            @Override
+            public void render(PokeADot game) {
+                renderFrozenFrame();
+            }
+        });
+
+        addRenderPass(new GamePass(RenderPipeline.Target.BATCH) {
+            @Override
+            public boolean isVisible() {
+                return !capturingFrame;
+            }
+
+            @Override
+            public void render(PokeADot game) {
+                renderOverlay();
+            }
+        });
+    }
+
+    private void addRenderPass(RenderPipeline.RenderPass pass)
+    {
+        renderPasses.add(pass);
+        game.pipeline.add(pass);
     }
 
-    private void updatePokables(float delta)
+    private void removeRenderPasses()
     {
-        for(Pokable pokable : pokables)
+        for(RenderPipeline.RenderPass pass : renderPasses)
         {
-            pokable.update(delta);
+            game.pipeline.remove(pass);
         }
+        renderPasses.clear();
     }
 
-    private void renderGraphics() {
-        renderSetup();
+    private boolean isSceneVisible()
+    {
+        return !frameFrozen || capturingFrame;
+    }
 
-        game.shape.begin(ShapeRenderer.ShapeType.Filled);
-        renderPokables();
-        game.shape.end();
+    private void renderGraphics() {
+        if (gameState == GameState.PAUSE || gameState == GameState.OVER)
+        {
+            if (!frameFrozen)
+                freezeFrame();
+        }
+        else
+        {
+            frameFrozen = false;
+            renderSetup();
+        }
 
-        game.batch.begin();
-        renderText();
-        if (gameState != GameState.RUN)
-            game.batch.draw(game.pauseBG, 0.0f, 0.0f, Gdx.graphics.getWidth(), Gdx.graphics.getHeight()); // dims the screen
-        game.batch.end();
+        game.pipeline.render();
+    }
 
-        game.batch.begin();
+    private void renderOverlay()
+    {
+        // The stages share game.batch, so their actors are drawn straight
+        // into the batch that is already open instead of through Stage.draw().
         switch (gameState)
         {
             case INTRO:
-                introStage.draw();
+                introStage.getRoot().draw(game.batch, 1.0f);
                 break;
             case RUN:
-                pauseButtonStage.draw();
+                pauseButtonStage.getRoot().draw(game.batch, 1.0f);
                 break;
             case PAUSE:
-                pauseMenuStage.draw();
+                pauseMenuStage.getRoot().draw(game.batch, 1.0f);
                 break;
             case OVER:
-                gameOverStage.draw();
+                gameOverStage.getRoot().draw(game.batch, 1.0f);
                 break;
         }
-        game.batch.end();
+    }
+
+    private void freezeFrame()
+    {
+        int width = Gdx.graphics.getWidth();
+        int height = Gdx.graphics.getHeight();
+
+        if (frozenFrame == null || frozenFrame.getWidth() != width || frozenFrame.getHeight() != height)
+        {
+            disposeFrozenFrame();
+            frozenFrame = new FrameBuffer(Pixmap.Format.RGB888, width, height, false);
+        }
+
+        // The playfield target can't be bound inside another frame buffer,
+        // so it is drawn before the capture starts.
+        capturingFrame = true;
+        game.pipeline.renderOffscreen();
+        frozenFrame.begin();
+        renderSetup();
+        game.pipeline.renderOnscreen();
+        frozenFrame.end();
+        capturingFrame = false;
+
+        frameFrozen = true;
+    }
+
+    private void renderFrozenFrame()
+    {
+        Texture frame = frozenFrame.getColorBufferTexture();
+
+        game.batch.disableBlending();
+        // Frame buffer textures are upside down.
+        game.batch.draw(frame, 0.0f, 0.0f, frame.getWidth(), frame.getHeight(),
+                0, 0, frame.getWidth(), frame.getHeight(), false, true);
+        game.batch.enableBlending();
+    }
+
+    private void disposeFrozenFrame()
+    {
+        if (frozenFrame != null)
+        {
+            frozenFrame.dispose();
+            frozenFrame = null;
+        }
+        frameFrozen = false;
     }
 
     private void renderPokables()
     {
-        for(Pokable pokable : pokables)
+        final PokableStore pokables = engine.pokables;
+        final float ppm = game.ppm;
+
+        pokables.evaluate(engine.getRenderTime());
+
+        // Under the live dots, so they're never hidden.
+        if(ghost != null)
+            ghost.draw(game.circles, ppm, engine.getRenderTime(), borderThickness);
+
+        for(int i = 0; i < pokables.size; i++)
         {
-            pokable.render();
+            if(!pokables.isVisible(i))
+                continue;
+
+            float outerRadius = pokables.visualRadius[i];
+            float innerRadius = outerRadius - borderThickness;
+            if(innerRadius < 0.0f)
+            {
+                innerRadius = 0.0f;
+            }
+
+            int hue = Math.min((int) (pokables.hue[i] * HUE_STEPS), HUE_STEPS - 1);
+            game.circles.draw(pokables.x[i] * ppm, pokables.y[i] * ppm,
+                              outerRadius * ppm, innerRadius * ppm,
+                              hueFillColors[hue], hueBorderColors[hue]);
         }
     }
 
@@ -399,12 +661,18 @@ public class GameScreen implements Screen
 
         switch(game.mode) {
             case PLAY:
+            case DAILY:
                 renderTimeText();
                 break;
             case PRACTICE:
+            case SWARM:
                 renderTimeText();
                 renderHitsText();
                 break;
+            case GHOST:
+                renderTimeText();
+                renderGhostText();
+                break;
         }
 
         game.smallFont.setColor(colorBackup);
@@ -412,28 +680,45 @@ public class GameScreen implements Screen
 
     private void renderHitsText()
     {
-        String pointsText = game.hits + "p";
+        pointsNumber.set(game.hits);
 
-        float pointsTextWidth = game.smallFont.getBounds(pointsText).width;
-        float pointsTextHeight = game.smallFont.getBounds(pointsText).height;
+        float pointsTextWidth = pointsNumber.getWidth(game.smallFont);
+        float pointsTextHeight = game.smallFont.getCapHeight();
 
         float centerPointsText = Gdx.graphics.getWidth() / 2.0f - pointsTextWidth / 2.0f;
         float bottomPointsText = (Constants.BUTTON_LENGTH*game.ppm) / 2.0f - pointsTextHeight / 2.0f;
 
-        game.smallFont.draw(game.batch, pointsText, centerPointsText, bottomPointsText);
+        pointsNumber.draw(game.batch, game.smallFont, centerPointsText, bottomPointsText);
+    }
+
+    private void renderGhostText()
+    {
+        if(ghost == null)
+            return;
+
+        // The ghost's time stays put once it's out, for the player to beat.
+        ghostNumber.set(ghost.isDone() ? ghost.getTime() : game.gameTime);
+
+        float ghostTextWidth = ghostNumber.getWidth(game.smallFont);
+        float ghostTextHeight = game.smallFont.getCapHeight();
+
+        float centerGhostText = Gdx.graphics.getWidth() / 2.0f - ghostTextWidth / 2.0f;
+        float bottomGhostText = (Constants.BUTTON_LENGTH*game.ppm) / 2.0f - ghostTextHeight / 2.0f;
+
+        ghostNumber.draw(game.batch, game.smallFont, centerGhostText, bottomGhostText);
     }
 
     private void renderTimeText()
     {
-        String formattedTime = String.format("%.2fs", game.gameTime);
+        timeNumber.set(game.gameTime);
 
-        float timeTextWidth = game.smallFont.getBounds(formattedTime).width;
-        float timeTextHeight = game.smallFont.getBounds(formattedTime).height;
+        float timeTextWidth = timeNumber.getWidth(game.smallFont);
+        float timeTextHeight = game.smallFont.getCapHeight();
 
         float centerTimeText = game.worldWidth * game.ppm / 2.0f - timeTextWidth / 2.0f;
         float topTimeText = game.worldHeight * game.ppm - timeTextHeight / 2.0f;
 
-        game.smallFont.draw(game.batch, formattedTime, centerTimeText, topTimeText);
+        timeNumber.draw(game.batch, game.smallFont, centerTimeText, topTimeText);
     }
 
     private void renderSetup()
@@ -451,83 +736,6 @@ public class GameScreen implements Screen
         //game.batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
     }
 
-    private void forceSpawn()
-    {
-        newSpawn();
-        nextSpawnTime = 0.0f;
-        stepSpawn(0.0f);
-    }
-
-    private void stepSpawn(float delta) {
-        spawnWaitTime += delta;
-        if (spawnWaitTime >= nextSpawnTime) {
-            for (int i = 0; i < spawnCount; i++)
-                spawnPokable();
-            newSpawn();
-        }
-    }
-
-    private void newSpawn() {
-        spawnWaitTime = 0.0f;
-        nextSpawnTime = MathUtils.random(Constants.MINIMUM_SPAWN_TIME, Constants.MAXIMUM_SPAWN_TIME);
-        spawnCount = MathUtils.random(Constants.MINIMUM_SPAWN_COUNT, Constants.MAXIMUM_SPAWN_COUNT);
-    }
-
-    private void spawnPokable()
-    {
-        Pokable pokable;
-
-        int attempts = 10;
-        while (attempts > 0)
-        {
-            pokable = generateRandomPokable();
-
-            if (!collidesWithPokables(pokable))
-            {
-                pokables.add(pokable);
-                attempts = 0;
-            }
-
-            attempts--;
-        }
-    }
-
-    private Pokable generateRandomPokable()
-    {
-        Circle newCircle = new Circle();
-        newCircle.radius = MathUtils.random(Constants.MINIMUM_CIRCLE_RADIUS, Constants.MAXIMUM_CIRCLE_RADIUS);
-        newCircle.x = MathUtils.random(0.0f + newCircle.radius, game.worldWidth - newCircle.radius);
-        newCircle.y = MathUtils.random(Constants.BUTTON_LENGTH + newCircle.radius,
-                                       game.worldHeight - newCircle.radius);
-
-        /*Color newColor = new Color();
-        newColor.r = MathUtils.random(0.5f, 1.0f);
-        newColor.g = MathUtils.random(0.5f, 1.0f);
-        newColor.b = MathUtils.random(0.5f, 1.0f);
-        newColor.a = 1.0f;*/
-
-        HSL newHSL = new HSL();
-        newHSL.h = MathUtils.random(0.0f, 1.0f);
-        newHSL.s = 0.7f;
-        newHSL.l = 0.7f;
-
-        Color newColor = newHSL.toRGB();
-
-        float newLifeSpan = MathUtils.random(Constants.MINIMUM_LIFE_TIME, Constants.MAXIMUM_LIFE_TIME);
-
-        return new Pokable(game, newCircle, newColor, newLifeSpan);
-    }
-
-    private boolean collidesWithPokables(Pokable testPokable)
-    {
-        for (Pokable otherPokable : pokables) {
-            if (otherPokable.collidesWith(testPokable)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void gameOverUpdate(float delta)
     {
         // Some last minute updates
@@ -546,15 +754,26 @@ public class GameScreen implements Screen
 
     private void showResultsScreen()
     {
+        if(Gdx.app.getType() == Application.ApplicationType.Desktop)
+            game.latency.dump(game.mode + "-" + Long.toHexString(game.sessionSeed));
+        if(game.dropped > 0 || game.throttled > 0 || game.waveStalls > 0)
+            Gdx.app.log("GameScreen", "Spawns: " + game.dropped + " dropped for room, "
+                    + game.throttled + " held back by the cap, "
+                    + game.waveStalls + " waits on the wave worker");
+
+        // Disposing finishes the recording, the results screen may keep it.
+        this.dispose();
+
         switch(game.mode)
         {
             case PLAY:
+            case DAILY:
+            case GHOST:
                 game.setScreen(new PlayResultsScreen(game));
-                this.dispose();
                 break;
             case PRACTICE:
+            case SWARM:
                 game.setScreen(new PracticeResultsScreen(game));
-                this.dispose();
                 break;
         }
     }
@@ -563,8 +782,12 @@ public class GameScreen implements Screen
     public void resize(int width, int height)
     {
         game.resize(width, height);
+        // A ghost race stays in the ghost's world, see createEngineConfig().
+        if(ghost == null)
+            engine.setWorldSize(game.worldWidth, game.worldHeight);
         disposeStages();
         buildStages();
+        disposeFrozenFrame();
     }
 
 	@Override
@@ -601,6 +824,9 @@ public class GameScreen implements Screen
 	@Override
 	public void resume()
     {
+        // The frame buffer contents don't survive a lost context.
+        frameFrozen = false;
+
         if(gameState == GameState.PAUSE)
         {
             setGameState(GameState.RUN);
@@ -609,9 +835,53 @@ public class GameScreen implements Screen
 
 	@Override
 	public void dispose() {
+        engine.dispose();
+        if(recorder != null && recorder.getError() != null)
+            Gdx.app.error("GameScreen", "Recording failed: " + recorder.getError().getMessage());
+        removeRenderPasses();
         disposeStages();
+        disposeFrozenFrame();
 	}
 
+    private class SoundListener implements EngineListener
+    {
+        @Override
+        public void hit(GameEngine engine, int slot)
+        {
+            float radiusPercent = engine.pokables.getRadius(slot, engine.pokables.time) / engine.config.maximumRadius;
+            float volume = Constants.DEFAULT_VOLUME;
+            float pitch = Constants.RADIUS_PERCENT_TO_PITCH * radiusPercent + Constants.PITCH_ADJUSTMENT;
+            float pan = Constants.DEFAULT_PAN;
+
+            long touchTime = engine.touchTime;
+            game.latency.hitApplied(touchTime);
+            game.hitSound.play(volume, pitch, pan);
+            game.latency.soundPlayed(touchTime);
+        }
+
+        @Override
+        public void missed(GameEngine engine)
+        {
+            game.missSound.play();
+        }
+    }
+
+    private abstract class GamePass implements RenderPipeline.RenderPass
+    {
+        private final RenderPipeline.Target target;
+
+        public GamePass(RenderPipeline.Target target)
+        {
+            this.target = target;
+        }
+
+        @Override
+        public RenderPipeline.Target getTarget()
+        {
+            return target;
+        }
+    }
+
     public class GameInputProcessor implements InputProcessor {
         @Override
         public boolean keyDown (int keycode) {
@@ -631,37 +901,11 @@ public class GameScreen implements Screen
         @Override
         public boolean touchDown (int pixelX, int pixelY, int pointer, int button)
         {
-            if (gameState == GameState.RUN || gameState == GameState.INTRO)
-            {
-                float worldX = (float) pixelX / game.ppm;
-                float worldY = game.worldHeight - (float) pixelY / game.ppm;
-
-                boolean miss = true;
-
-                for(Pokable pokable : pokables)
-                {
-                    if (pokable.getHittableCircle().contains(worldX, worldY))
-                    {
-                        game.hits++;
-
-                        pokable.setState(Pokable.PokableState.HIT);
-                        miss = false;
-
-                        float radiusPercent = pokable.getVisualRadius() / Constants.MAXIMUM_CIRCLE_RADIUS;
-                        float volume = Constants.DEFAULT_VOLUME;
-                        float pitch = Constants.RADIUS_PERCENT_TO_PITCH * radiusPercent + Constants.PITCH_ADJUSTMENT;
-                        float pan = Constants.DEFAULT_PAN;
-                        game.hitSound.play(volume, pitch, pan);
-                    }
-                }
-
-                if (miss)
-                {
-                    game.missSound.play();
-                    game.missed++;
-                }
-            }
+            // The first poke starts the game, and counts.
+            if (gameState == GameState.INTRO)
+                startRunning();
 
+            queueTouch(TouchQueue.DOWN, pixelX, pixelY, pointer);
             return false;
         }
 
@@ -672,9 +916,38 @@ public class GameScreen implements Screen
 
         @Override
         public boolean touchDragged (int x, int y, int pointer) {
+            // There are too many dots in a swarm to tap one by one.
+            if (game.mode == GameMode.SWARM)
+                queueTouch(TouchQueue.DRAG, x, y, pointer);
             return false;
         }
 
+        /** Touches are only queued here, the engine applies them in the step they happened in. */
+        private void queueTouch(byte type, int pixelX, int pixelY, int pointer)
+        {
+            if (gameState == GameState.RUN)
+            {
+                float worldX = (float) pixelX / game.ppm;
+                float worldY = game.worldHeight - (float) pixelY / game.ppm;
+
+                engine.touches.offer(type, pointer, worldX, worldY, eventTime());
+            }
+        }
+
+        /**
+         * When the event happened, on the System.nanoTime() clock. Some
+         * backends stamp mouse events from a clock of their own, so a time
+         * that can't be right is replaced by now.
+         */
+        private long eventTime()
+        {
+            long now = TimeUtils.nanoTime();
+            long time = Gdx.input.getCurrentEventTime();
+            if (time > now || now - time > MAXIMUM_EVENT_AGE)
+                return now;
+            return time;
+        }
+
         @Override
         public boolean mouseMoved (int x, int y) {
             return false;
@@ -0,0 +1,137 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.andgate.pokeadot.engine.PokableStore;
+import com.andgate.pokeadot.engine.Replayer;
+import com.andgate.pokeadot.engine.SessionReplay;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * The player's best PLAY run, played back in step with a live game on
+ * the same seed. Its events are decoded as the live game reaches them.
+ *
+ * The recording is read rather than mapped, they're only a kilobyte or
+ * so, and on Windows a mapped file can't be replaced while the mapping
+ * lives, which would stop keepBest() taking a run that beats this one.
+ *
+ * Only the ghost's pops are drawn. Its engine sees the same waves as the
+ * live one, so drawing its dots as well would just double them up.
+ */
+public class Ghost
+{
+    public final SessionReplay replay;
+    private final Replayer replayer;
+
+    private final float fillColor;
+    private final float borderColor;
+
+    private Ghost(SessionReplay replay)
+    {
+        this.replay = replay;
+        replayer = new Replayer(replay);
+
+        fillColor = Constants.GHOST_FILL_COLOR.toFloatBits();
+        borderColor = Constants.GHOST_BORDER_COLOR.toFloatBits();
+    }
+
+    public static boolean exists()
+    {
+        return Gdx.files.local(Constants.BEST_REPLAY_LOCATION).exists();
+    }
+
+    /** The best run, or null if there isn't one that can be read. */
+    public static Ghost load()
+    {
+        FileHandle file = Gdx.files.local(Constants.BEST_REPLAY_LOCATION);
+        if(!file.exists())
+            return null;
+
+        try
+        {
+            FileInputStream in = new FileInputStream(file.file());
+            try
+            {
+                return new Ghost(SessionReplay.read(in.getChannel()));
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            Gdx.app.error("Ghost", "Can't load the best run: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Keeps the best run when a PLAY session beats it. */
+    public static void keepBest()
+    {
+        FileHandle last = Gdx.files.local(Constants.REPLAY_LOCATION);
+        if(last.exists())
+            last.copyTo(Gdx.files.local(Constants.BEST_REPLAY_LOCATION));
+    }
+
+    public long getSeed()
+    {
+        return replay.seed;
+    }
+
+    /** How long the ghost lasted. */
+    public float getTime()
+    {
+        return replay.gameTime;
+    }
+
+    /** True once the ghost's run is over, while the live one may go on. */
+    public boolean isDone()
+    {
+        return replayer.engine.tick >= replay.endTick || replayer.engine.isOver();
+    }
+
+    /** Catches the ghost up with the live game. */
+    public void advanceTo(long tick)
+    {
+        replayer.playTo(tick);
+    }
+
+    /** Queues the ghost's pops, in pixels, at the given simulation time. */
+    public void draw(CircleRenderer circles, float ppm, float atTime, float borderThickness)
+    {
+        if(isDone())
+            return;
+
+        final PokableStore pokables = replayer.engine.pokables;
+        for(int i = 0; i < pokables.size; i++)
+        {
+            if(pokables.state[i] != PokableStore.HIT)
+                continue;
+
+            float outerRadius = pokables.getRadius(i, atTime);
+            float innerRadius = Math.max(outerRadius - borderThickness, 0.0f);
+            circles.draw(pokables.x[i] * ppm, pokables.y[i] * ppm,
+                         outerRadius * ppm, innerRadius * ppm,
+                         fillColor, borderColor);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+
+/**
+ * A fixed-point number written into a reused char buffer, so it can be
+ * drawn every frame without making garbage. The text is only rewritten
+ * when the value changes, and the glyph advances of the characters it
+ * can contain are cached per font, so measuring it is a few additions.
+ */
+public class HudNumber implements CharSequence
+{
+    private static final int MAX_DIGITS = 20;
+
+    private final String prefix;
+    private final String suffix;
+    private final int decimals;
+    private final long scale;
+
+    private final char[] chars;
+    private int length = 0;
+    private long value = Long.MIN_VALUE;
+
+    private BitmapFont cachedFont;
+    private final float[] advances = new float[128];
+
+    public HudNumber(int decimals, String suffix)
+    {
+        this("", decimals, suffix);
+    }
+
+    public HudNumber(String prefix, int decimals, String suffix)
+    {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.decimals = decimals;
+
+        long scale = 1;
+        for(int i = 0; i < decimals; i++)
+            scale *= 10;
+        this.scale = scale;
+
+        chars = new char[prefix.length() + MAX_DIGITS + suffix.length()];
+    }
+
+    public HudNumber set(float number)
+    {
+        setFixed(Math.round((double)number * scale));
+        return this;
+    }
+
+    public HudNumber set(int number)
+    {
+        setFixed(number * scale);
+        return this;
+    }
+
+    private void setFixed(long fixed)
+    {
+        if(fixed == value && length > 0)
+            return;
+        value = fixed;
+
+        int i = 0;
+        for(int c = 0; c < prefix.length(); c++)
+            chars[i++] = prefix.charAt(c);
+
+        if(fixed < 0)
+        {
+            chars[i++] = '-';
+            fixed = -fixed;
+        }
+
+        // Digits come out backwards, so write them to the end of the
+        // buffer first and then move them in place.
+        int end = chars.length;
+        int start = end;
+        int digits = 0;
+        do
+        {
+            if(digits == decimals && decimals > 0)
+                chars[--start] = '.';
+            chars[--start] = (char)('0' + fixed % 10);
+            fixed /= 10;
+            digits++;
+        } while(fixed > 0 || digits <= decimals);
+
+        System.arraycopy(chars, start, chars, i, end - start);
+        i += end - start;
+
+        for(int c = 0; c < suffix.length(); c++)
+            chars[i++] = suffix.charAt(c);
+
+        length = i;
+    }
+
+    public float getWidth(BitmapFont font)
+    {
+        if(font != cachedFont)
+            cacheAdvances(font);
+
+        float width = 0.0f;
+        for(int i = 0; i < length; i++)
+        {
+            char c = chars[i];
+            width += c < advances.length ? advances[c] : 0.0f;
+        }
+        return width;
+    }
+
+    private void cacheAdvances(BitmapFont font)
+    {
+        BitmapFont.BitmapFontData data = font.getData();
+        for(char c = 0; c < advances.length; c++)
+        {
+            BitmapFont.Glyph glyph = data.getGlyph(c);
+            advances[c] = glyph != null ? glyph.xadvance * font.getScaleX() : 0.0f;
+        }
+        cachedFont = font;
+    }
+
+    public void draw(Batch batch, BitmapFont font, float x, float y)
+    {
+        font.draw(batch, this, x, y);
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(chars, 0, length);
+    }
+}
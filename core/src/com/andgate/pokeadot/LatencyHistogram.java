@@ -0,0 +1,97 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+/**
+ * Counts latencies into fixed quarter-millisecond buckets, up to 200ms.
+ * Anything slower goes in one overflow bucket, though the maximum is
+ * kept exactly. Recording is a couple of adds, so it's cheap enough to
+ * leave on for every poke.
+ */
+public class LatencyHistogram
+{
+    public static final long BUCKET_NANOS = 250000L;
+    public static final int BUCKETS = 800;
+
+    private static final float NANOS_PER_MILLI = 1000000.0f;
+
+    public final String name;
+    public final int[] counts = new int[BUCKETS + 1];
+
+    private int count = 0;
+    private long total = 0L;
+    private long max = 0L;
+
+    public LatencyHistogram(String name)
+    {
+        this.name = name;
+    }
+
+    public void record(long nanos)
+    {
+        if(nanos < 0L)
+            nanos = 0L;
+
+        int bucket = (int)Math.min(nanos / BUCKET_NANOS, BUCKETS);
+        counts[bucket]++;
+        count++;
+        total += nanos;
+        if(nanos > max)
+            max = nanos;
+    }
+
+    public void reset()
+    {
+        for(int i = 0; i < counts.length; i++)
+            counts[i] = 0;
+        count = 0;
+        total = 0L;
+        max = 0L;
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    public float getMean()
+    {
+        return count > 0 ? total / count / NANOS_PER_MILLI : 0.0f;
+    }
+
+    public float getMax()
+    {
+        return max / NANOS_PER_MILLI;
+    }
+
+    /** The upper edge of the bucket holding the given fraction of samples, in milliseconds. */
+    public float getPercentile(float fraction)
+    {
+        if(count == 0)
+            return 0.0f;
+
+        int rank = Math.max((int)Math.ceil(fraction * count), 1);
+        int seen = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += counts[bucket];
+            if(seen >= rank)
+                return (bucket + 1) * BUCKET_NANOS / NANOS_PER_MILLI;
+        }
+        return getMax();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Follows each poke that hits something from the moment it arrived to
+ * when the hit took effect in the simulation, when the first frame
+ * showing it was submitted, and when its sound was asked for. A poke
+ * that pops several pokables is counted once. Touches that never got
+ * that far, merged into an earlier drag or lost to a full queue, are
+ * counted alongside.
+ */
+public class LatencyTracker
+{
+    private static final String DUMP_PATH = "latency.csv";
+
+    public final LatencyHistogram applied = new LatencyHistogram("applied");
+    public final LatencyHistogram frame = new LatencyHistogram("frame");
+    public final LatencyHistogram sound = new LatencyHistogram("sound");
+
+    /** Drags merged into the one before, see GameEngine.coalesced. */
+    public int coalesced = 0;
+    /** Touches dropped because the touch queue was full. */
+    public int overflows = 0;
+
+    private long lastTouch = -1L;
+    private long lastSoundTouch = -1L;
+
+    // Arrival times of pokes waiting for a frame to show them.
+    private long[] pendingFrame = new long[16];
+    private int pendingFrameCount = 0;
+
+    public void reset()
+    {
+        applied.reset();
+        frame.reset();
+        sound.reset();
+        coalesced = 0;
+        overflows = 0;
+        lastTouch = -1L;
+        lastSoundTouch = -1L;
+        pendingFrameCount = 0;
+    }
+
+    /** A poke that arrived at touchTime just hit. Call before playing its sound. */
+    public void hitApplied(long touchTime)
+    {
+        if(touchTime < 0L || touchTime == lastTouch)
+            return;
+
+        lastTouch = touchTime;
+        applied.record(TimeUtils.nanoTime() - touchTime);
+
+        if(pendingFrameCount == pendingFrame.length)
+        {
+            long[] newPending = new long[pendingFrame.length * 2];
+            System.arraycopy(pendingFrame, 0, newPending, 0, pendingFrameCount);
+            pendingFrame = newPending;
+        }
+        pendingFrame[pendingFrameCount++] = touchTime;
+    }
+
+    /** The sound for the poke that arrived at touchTime was just asked for. */
+    public void soundPlayed(long touchTime)
+    {
+        if(touchTime < 0L || touchTime == lastSoundTouch)
+            return;
+
+        lastSoundTouch = touchTime;
+        sound.record(TimeUtils.nanoTime() - touchTime);
+    }
+
+    /** Call once a frame has been drawn and handed to the driver. */
+    public void frameSubmitted()
+    {
+        if(pendingFrameCount == 0)
+            return;
+
+        long now = TimeUtils.nanoTime();
+        for(int i = 0; i < pendingFrameCount; i++)
+            frame.record(now - pendingFrame[i]);
+        pendingFrameCount = 0;
+    }
+
+    public String getReport()
+    {
+        return describe(applied) + "\n" + describe(frame) + "\n" + describe(sound)
+                + "\ntouches: " + coalesced + " drags coalesced, " + overflows + " lost to a full queue";
+    }
+
+    private static String describe(LatencyHistogram histogram)
+    {
+        return histogram.name + ": " + histogram.getCount() + " pokes"
+                + ", mean " + histogram.getMean() + "ms"
+                + ", p50 " + histogram.getPercentile(0.5f) + "ms"
+                + ", p90 " + histogram.getPercentile(0.9f) + "ms"
+                + ", p99 " + histogram.getPercentile(0.99f) + "ms"
+                + ", max " + histogram.getMax() + "ms";
+    }
+
+    /**
+     * Logs the summary and appends every histogram to latency.csv in the
+     * working directory, one row per histogram with its bucket counts.
+     */
+    public void dump(String session)
+    {
+        Gdx.app.log("Latency", session + "\n" + getReport());
+
+        FileHandle file = Gdx.files.local(DUMP_PATH);
+        StringBuilder csv = new StringBuilder();
+        if(!file.exists())
+        {
+            csv.append("session,stage,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,bucket_ms");
+            for(int bucket = 0; bucket <= LatencyHistogram.BUCKETS; bucket++)
+                csv.append(",b").append(bucket);
+            csv.append('\n');
+        }
+
+        appendRow(csv, session, applied);
+        appendRow(csv, session, frame);
+        appendRow(csv, session, sound);
+        file.writeString(csv.toString(), true);
+    }
+
+    private static void appendRow(StringBuilder csv, String session, LatencyHistogram histogram)
+    {
+        csv.append(session).append(',')
+           .append(histogram.name).append(',')
+           .append(histogram.getCount()).append(',')
+           .append(histogram.getMean()).append(',')
+           .append(histogram.getPercentile(0.5f)).append(',')
+           .append(histogram.getPercentile(0.9f)).append(',')
+           .append(histogram.getPercentile(0.99f)).append(',')
+           .append(histogram.getMax()).append(',')
+           .append(LatencyHistogram.BUCKET_NANOS / 1000000.0f);
+        for(int count : histogram.counts)
+            csv.append(',').append(count);
+        csv.append('\n');
+    }
+}
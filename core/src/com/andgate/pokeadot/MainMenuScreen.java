@@ -16,6 +16,7 @@
 
 package com.andgate.pokeadot;
 
+import com.andgate.pokeadot.engine.GameMode;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
@@ -36,6 +37,9 @@ public class MainMenuScreen implements Screen
 
     private static final String PLAY_BUTTON_TEXT = "Play";
     private static final String PRACTICE_BUTTON_TEXT = "Practice";
+    private static final String DAILY_BUTTON_TEXT = "Daily";
+    private static final String SWARM_BUTTON_TEXT = "Swarm";
+    private static final String GHOST_BUTTON_TEXT = "Ghost";
     private static final String BUY_BUTTON_TEXT = "Buy";
 
 	public MainMenuScreen(final PokeADot newGame) {
@@ -54,13 +58,16 @@ public class MainMenuScreen implements Screen
 
         final TextButton playButton = new TextButton(PLAY_BUTTON_TEXT, buttonStyle);
         final TextButton practiceButton = new TextButton(PRACTICE_BUTTON_TEXT, buttonStyle);
+        final TextButton dailyButton = new TextButton(DAILY_BUTTON_TEXT, buttonStyle);
+        final TextButton swarmButton = new TextButton(SWARM_BUTTON_TEXT, buttonStyle);
+        final TextButton ghostButton = new TextButton(GHOST_BUTTON_TEXT, buttonStyle);
         final TextButton buyButton = new TextButton(BUY_BUTTON_TEXT, buttonStyle);
 
         playButton.addListener(new ClickListener() {
             @Override
             public void clicked(InputEvent event, float x, float y) {
                 game.buttonPressedSound.play();
-                game.setScreen(new GameScreen(game, PokeADot.GameMode.PLAY));
+                game.setScreen(new GameScreen(game, GameMode.PLAY));
                 MainMenuScreen.this.dispose();
             }
         });
@@ -69,7 +76,34 @@ public class MainMenuScreen implements Screen
             @Override
             public void clicked(InputEvent event, float x, float y) {
                 game.buttonPressedSound.play();
-                game.setScreen(new GameScreen(game, PokeADot.GameMode.PRACTICE));
+                game.setScreen(new GameScreen(game, GameMode.PRACTICE));
+                MainMenuScreen.this.dispose();
+            }
+        });
+
+        dailyButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                game.buttonPressedSound.play();
+                game.setScreen(new GameScreen(game, GameMode.DAILY));
+                MainMenuScreen.this.dispose();
+            }
+        });
+
+        swarmButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                game.buttonPressedSound.play();
+                game.setScreen(new GameScreen(game, GameMode.SWARM));
+                MainMenuScreen.this.dispose();
+            }
+        });
+
+        ghostButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                game.buttonPressedSound.play();
+                game.setScreen(new GameScreen(game, GameMode.GHOST));
                 MainMenuScreen.this.dispose();
             }
         });
@@ -82,8 +116,8 @@ public class MainMenuScreen implements Screen
         });
 
         final LabelStyle currentHighScoreLabelStyle = new LabelStyle(game.smallFont, Color.ORANGE);
-        final String currentHighScore = String.format("%.2f", HighScoreService.get().time);
-        final Label currentHighScoreLabel = new Label("Best time: " + currentHighScore, currentHighScoreLabelStyle);
+        final HudNumber currentHighScore = new HudNumber("Best time: ", 2, "").set(HighScoreService.get().time);
+        final Label currentHighScoreLabel = new Label(currentHighScore, currentHighScoreLabelStyle);
 
         Table table = new Table();
 
@@ -95,6 +129,14 @@ public class MainMenuScreen implements Screen
         float buttonWidth = practiceButton.getWidth();
         table.add(playButton).width(buttonWidth).spaceBottom(20.0f).center().row();
         table.add(practiceButton).spaceBottom(20.0f).center().row();
+        table.add(dailyButton).width(buttonWidth).spaceBottom(20.0f).center().row();
+        table.add(swarmButton).width(buttonWidth).spaceBottom(20.0f).center().row();
+
+        // Only once there's a best run to race.
+        if(Ghost.exists())
+        {
+            table.add(ghostButton).width(buttonWidth).spaceBottom(20.0f).center().row();
+        }
 
         if(game.isFree)
         {
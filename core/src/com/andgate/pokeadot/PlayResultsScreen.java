@@ -16,6 +16,7 @@
 
 package com.andgate.pokeadot;
 
+import com.andgate.pokeadot.engine.GameMode;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
@@ -40,7 +41,7 @@ public class PlayResultsScreen implements Screen
         Gdx.input.setInputProcessor(stage);
 
         boolean newHighScore = false;
-        if(game.mode == PokeADot.GameMode.PLAY)
+        if(game.mode == GameMode.PLAY)
         {
             HighScore currentHighScore = HighScoreService.get();
             if(game.gameTime >= currentHighScore.time)
@@ -48,6 +49,11 @@ public class PlayResultsScreen implements Screen
                 HighScoreService.set(new HighScore(game.gameTime));
                 newHighScore = true;
             }
+
+            // High scores from before runs were recorded have no run to
+            // race, so the first recorded one stands in until it's beaten.
+            if(newHighScore || !Ghost.exists())
+                Ghost.keepBest();
         }
 
         // Retry and exit buttons
@@ -75,8 +81,10 @@ public class PlayResultsScreen implements Screen
         final Label.LabelStyle newHighScoreLabelStyle = new Label.LabelStyle(game.mediumSmallFont, Color.RED);
 
         final Label resultsLabel = new Label("Result", titleLabelStyle);
-        final Label timeLabel = new Label(String.format("Time: %.2f", game.gameTime) + " seconds", infoLabelStyle);
+        final Label timeLabel = new Label(new HudNumber("Time: ", 2, " seconds").set(game.gameTime), infoLabelStyle);
         final Label newHighScoreLabel = new Label("New high score!", newHighScoreLabelStyle);
+        final Label ghostLabel = new Label(new HudNumber("Ghost: ", 2, " seconds").set(game.ghostTime), infoLabelStyle);
+        final Label ghostBeatenLabel = new Label("You beat your ghost!", newHighScoreLabelStyle);
 
         //table.debugAll();
 
@@ -88,6 +96,12 @@ public class PlayResultsScreen implements Screen
             resultsTable.add(newHighScoreLabel).top().center().row();
         }
 
+        if(game.mode == GameMode.GHOST && game.ghostTime > 0.0f) {
+            resultsTable.add(ghostLabel).top().center().row();
+            if(game.gameTime > game.ghostTime)
+                resultsTable.add(ghostBeatenLabel).top().center().row();
+        }
+
         final Table buttonsTable = new Table();
         buttonsTable.add(replayButton).left();
         buttonsTable.add(nextButton).expandX().right();
@@ -111,7 +125,7 @@ public class PlayResultsScreen implements Screen
 
     private void goReplay()
     {
-        PokeADot.GameMode mode = game.mode;
+        GameMode mode = game.mode;
 
         game.resetGame();
         game.setScreen(new GameScreen(game, mode));
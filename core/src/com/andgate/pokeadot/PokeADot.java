@@ -16,9 +16,11 @@
 
 package com.andgate.pokeadot;
 
+import com.andgate.pokeadot.engine.GameMode;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
@@ -28,22 +30,22 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.Scaling;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.viewport.ScalingViewport;
 
 public class PokeADot extends Game
 {
-    public enum GameMode
-    {
-        PLAY,
-        PRACTICE,
-        NONE
-    }
-
     public SpriteBatch batch;
     public ShapeRenderer shape;
+    public CircleRenderer circles;
+    public RenderPipeline pipeline;
+    public DynamicResolution resolution;
 
     public Skin skin;
     public Texture pauseBG;
@@ -60,24 +62,49 @@ public class PokeADot extends Game
     public int missed;
     public int hits;
     public float gameTime;
-
-    public PokeADot.GameMode mode;
+    public long sessionSeed;
+    public int peakPokables;
+    /** Pokables waves wanted but had no room for, or were held back by the cap. */
+    public int dropped;
+    public int throttled;
+    /** Times the game waited on the wave worker. */
+    public int waveStalls;
+    /** How long the ghost lasted in a GHOST race. */
+    public float ghostTime;
+    public final LatencyTracker latency = new LatencyTracker();
+
+    public GameMode mode;
 
     public float ppm = 0.0f;
     public float worldWidth = 0.0f;
     public float worldHeight = (float)Constants.WORLD_HEIGHT;
 
     public final boolean isFree;
+    public final FramePacer pacer;
+    /**
+     * Seconds the last frame spent on its own work, leaving out the time
+     * spent waiting on the pacer or vsync, which says nothing about load.
+     */
+    public float frameWorkTime = 0.0f;
 
     public PokeADot(boolean isFree)
+    {
+        this(isFree, FramePacer.vsync());
+    }
+
+    public PokeADot(boolean isFree, FramePacer pacer)
     {
         this.isFree = isFree;
+        this.pacer = pacer;
     }
 
     @Override
     public void create() {
         batch = new SpriteBatch();
         shape = new ShapeRenderer();
+        circles = new CircleRenderer(Constants.CIRCLE_BATCH_SIZE, shape);
+        pipeline = new RenderPipeline(this);
+        resolution = new DynamicResolution();
 
         Gdx.input.setCatchBackKey(true);
 
@@ -105,12 +132,19 @@ public class PokeADot extends Game
         Matrix4 matrix = new Matrix4();
         matrix.setToOrtho2D(0, 0, width, height);
         batch.setProjectionMatrix(matrix);
+        circles.setProjectionMatrix(matrix);
     }
 
     public void resetGame() {
         missed = 0;
         hits = 0;
         gameTime = 0.0f;
+        peakPokables = 0;
+        dropped = 0;
+        throttled = 0;
+        waveStalls = 0;
+        ghostTime = 0.0f;
+        latency.reset();
         mode = GameMode.NONE;
     }
 
@@ -137,6 +171,16 @@ public class PokeADot extends Game
         return button;
     }
 
+    /**
+     * A stage that draws with the shared batch, so its actors can be
+     * drawn by a pass of the render pipeline.
+     */
+    public Stage createStage()
+    {
+        return new Stage(new ScalingViewport(Scaling.stretch, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(),
+                new OrthographicCamera()), batch);
+    }
+
     private void createFonts()
     {
         FreeTypeFontGenerator generator = new FreeTypeFontGenerator(Gdx.files.internal(Constants.FONT_LOCATION));
@@ -170,6 +214,8 @@ public class PokeADot extends Game
     {
         batch.dispose();
         shape.dispose();
+        circles.dispose();
+        resolution.dispose();
 
         skin.dispose();
 
@@ -191,7 +237,13 @@ public class PokeADot extends Game
 
     @Override
 	public void render() {
+        long frameStart = TimeUtils.nanoTime();
+        resolution.update(frameWorkTime);
+        pipeline.resetCounts();
 		super.render(); // SUPER important! (hahaha...sorry)
+        pacer.recordPipeline(pipeline.drawCalls, pipeline.targetSwitches);
+        frameWorkTime = (TimeUtils.nanoTime() - frameStart) / 1000000000.0f;
+        pacer.endFrame();
 	}
 
     @Override
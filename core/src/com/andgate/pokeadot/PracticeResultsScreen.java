@@ -16,6 +16,7 @@
 
 package com.andgate.pokeadot;
 
+import com.andgate.pokeadot.engine.GameMode;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
@@ -28,16 +29,12 @@ import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 
-import java.text.DecimalFormat;
-
 public class PracticeResultsScreen implements Screen
 {
     private final PokeADot game;
 
     private Stage stage;
 
-    private static final DecimalFormat doubleDecimal = new DecimalFormat("0.00");
-
     public PracticeResultsScreen(PokeADot currentGame)
     {
         game = currentGame;
@@ -70,18 +67,18 @@ public class PracticeResultsScreen implements Screen
         Label resultsLabel = new Label("Results", titleLabelStyle);
 
         Label timeTitleLabel = new Label("Time: ", infoLabelStyle);
-        Label timeLabel = new Label(doubleDecimal.format(game.gameTime) + " seconds", infoLabelStyle);
+        Label timeLabel = new Label(new HudNumber(2, " seconds").set(game.gameTime), infoLabelStyle);
 
         Label hitsTitleLabel = new Label("Hit: ", infoLabelStyle);
-        Label hitsLabel = new Label(((int)game.hits) + " p", infoLabelStyle);
+        Label hitsLabel = new Label(new HudNumber(0, " p").set(game.hits), infoLabelStyle);
 
         Label missedTitleLabel = new Label("Missed: ", infoLabelStyle);
-        Label missedLabel = new Label(((int)game.missed) + " p", infoLabelStyle);
+        Label missedLabel = new Label(new HudNumber(0, " p").set(game.missed), infoLabelStyle);
 
-        String accuracyString;
+        CharSequence accuracyString;
         if(game.missed > 0) {
             float accuracy = (float) game.hits / (game.hits + game.missed);
-            accuracyString = doubleDecimal.format(accuracy) + "%";
+            accuracyString = new HudNumber(2, "%").set(accuracy);
         } else {
             accuracyString = "-";
         }
@@ -106,6 +103,31 @@ public class PracticeResultsScreen implements Screen
         table.add(acurracyTitleLabel).top().left();
         table.add(accuracyLabel).expand().top().left().row();
 
+        addLatencyRow(table, "Poke to hit: ", game.latency.applied, infoLabelStyle);
+        addLatencyRow(table, "Poke to frame: ", game.latency.frame, infoLabelStyle);
+        addLatencyRow(table, "Poke to sound: ", game.latency.sound, infoLabelStyle);
+        if(game.latency.coalesced > 0)
+            addCountRow(table, "Merged drags: ", game.latency.coalesced, "", infoLabelStyle);
+        if(game.latency.overflows > 0)
+            addCountRow(table, "Lost touches: ", game.latency.overflows, "", infoLabelStyle);
+
+        // Waves that couldn't place everything they wanted.
+        if(game.dropped > 0)
+            addCountRow(table, "No room for: ", game.dropped, " dots", infoLabelStyle);
+        if(game.throttled > 0)
+            addCountRow(table, "Held back: ", game.throttled, " dots", infoLabelStyle);
+        if(game.waveStalls > 0)
+            addCountRow(table, "Wave stalls: ", game.waveStalls, "", infoLabelStyle);
+
+        if(game.mode == GameMode.SWARM)
+        {
+            Label peakTitleLabel = new Label("Most dots: ", infoLabelStyle);
+            Label peakLabel = new Label(new HudNumber(0, "").set(game.peakPokables), infoLabelStyle);
+
+            table.add(peakTitleLabel).top().left();
+            table.add(peakLabel).expand().top().left().row();
+        }
+
         table.add(replayButton).bottom().center();
         table.add(nextButton).expand().bottom().center();
 
@@ -114,6 +136,31 @@ public class PracticeResultsScreen implements Screen
         stage.addActor(table);
     }
 
+    /** Median and 90th percentile, in milliseconds. */
+    private void addLatencyRow(Table table, String title, LatencyHistogram histogram, LabelStyle style)
+    {
+        String value = "-";
+        if(histogram.getCount() > 0)
+        {
+            value = roundTenth(histogram.getPercentile(0.5f)) + " / "
+                    + roundTenth(histogram.getPercentile(0.9f)) + " ms";
+        }
+
+        table.add(new Label(title, style)).top().left();
+        table.add(new Label(value, style)).expand().top().left().row();
+    }
+
+    private void addCountRow(Table table, String title, int count, String unit, LabelStyle style)
+    {
+        table.add(new Label(title, style)).top().left();
+        table.add(new Label(count + unit, style)).expand().top().left().row();
+    }
+
+    private static float roundTenth(float value)
+    {
+        return Math.round(value * 10.0f) / 10.0f;
+    }
+
     private void goMainMenu()
     {
         game.resetGame();
@@ -123,7 +170,7 @@ public class PracticeResultsScreen implements Screen
 
     private void goReplay()
     {
-        PokeADot.GameMode mode = game.mode;
+        GameMode mode = game.mode;
 
         game.resetGame();
         game.setScreen(new GameScreen(game, mode));
@@ -0,0 +1,163 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * An ordered list of render passes. Neighbouring passes that draw with
+ * the same renderer share one begin()/end(), so a frame only switches
+ * renderers when the draw order really needs it.
+ *
+ * PLAYFIELD passes are drawn first, with the circle renderer, into the
+ * game's DynamicResolution target. A later pass puts that target on
+ * screen, everything else is drawn at native resolution.
+ */
+public class RenderPipeline
+{
+    public enum Target
+    {
+        PLAYFIELD,
+        BATCH
+    }
+
+    public interface RenderPass
+    {
+        Target getTarget();
+        boolean isVisible();
+        void render(PokeADot game);
+    }
+
+    private final PokeADot game;
+    private final Array<RenderPass> passes = new Array<RenderPass>();
+
+    /** Draw calls issued since the last resetCounts(). */
+    public int drawCalls = 0;
+    /** Times it went from one renderer to another since the last resetCounts(). */
+    public int targetSwitches = 0;
+
+    public RenderPipeline(PokeADot game)
+    {
+        this.game = game;
+    }
+
+    public void add(RenderPass pass)
+    {
+        passes.add(pass);
+    }
+
+    public void remove(RenderPass pass)
+    {
+        passes.removeValue(pass, true);
+    }
+
+    /** Call at the start of every frame, a frame can render more than once. */
+    public void resetCounts()
+    {
+        drawCalls = 0;
+        targetSwitches = 0;
+    }
+
+    public void render()
+    {
+        renderOffscreen();
+        renderOnscreen();
+    }
+
+    /** Draws the PLAYFIELD passes into the scaled playfield target. */
+    public void renderOffscreen()
+    {
+        boolean drawing = false;
+        for(int i = 0; i < passes.size; i++)
+        {
+            RenderPass pass = passes.get(i);
+            if(pass.getTarget() != Target.PLAYFIELD || !pass.isVisible())
+                continue;
+
+            if(!drawing)
+            {
+                game.resolution.begin();
+                game.circles.begin();
+                drawing = true;
+            }
+
+            pass.render(game);
+        }
+
+        if(drawing)
+        {
+            game.circles.end();
+            game.resolution.end();
+            drawCalls += game.circles.renderCalls;
+            targetSwitches++;
+        }
+    }
+
+    /** Draws every other pass into whatever frame buffer is bound. */
+    public void renderOnscreen()
+    {
+        Target current = null;
+        for(int i = 0; i < passes.size; i++)
+        {
+            RenderPass pass = passes.get(i);
+            if(pass.getTarget() == Target.PLAYFIELD || !pass.isVisible())
+                continue;
+
+            Target target = pass.getTarget();
+            if(target != current)
+            {
+                if(current != null)
+                {
+                    end(current);
+                    targetSwitches++;
+                }
+                begin(target);
+                current = target;
+            }
+
+            pass.render(game);
+        }
+
+        if(current != null)
+            end(current);
+    }
+
+    private void begin(Target target)
+    {
+        switch(target)
+        {
+            case PLAYFIELD:
+                break;
+            case BATCH:
+                game.batch.begin();
+                break;
+        }
+    }
+
+    private void end(Target target)
+    {
+        switch(target)
+        {
+            case PLAYFIELD:
+                break;
+            case BATCH:
+                game.batch.end();
+                drawCalls += game.batch.renderCalls;
+                break;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates waves on a worker thread, a few ahead of the game. Waves
+ * circulate between two bounded queues: the worker takes an empty one,
+ * fills it and puts it on the ready queue, the engine takes it from there
+ * and hands it back empty once placed. The worker stops when every wave
+ * is waiting on the ready queue, and nothing is allocated after start-up.
+ */
+public class BackgroundWaveSource implements WaveSource, Runnable
+{
+    private static final long POLL_MILLIS = 10L;
+
+    private final WaveGenerator generator;
+    private final BlockingQueue<Wave> ready;
+    private final BlockingQueue<Wave> empty;
+    private final Thread worker;
+
+    private volatile Throwable failure;
+
+    /** How many times the engine had to wait on the worker for a wave. */
+    public int stalls = 0;
+
+    public BackgroundWaveSource(EngineConfig config, long seed)
+    {
+        generator = new WaveGenerator(config, seed);
+
+        int ahead = Math.max(config.wavesAhead, 1);
+        ready = new ArrayBlockingQueue<Wave>(ahead);
+        empty = new ArrayBlockingQueue<Wave>(ahead);
+        for(int i = 0; i < ahead; i++)
+            empty.add(generator.newWave());
+
+        worker = new Thread(this, "WaveGenerator");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            int index = 0;
+            while(!Thread.currentThread().isInterrupted())
+            {
+                Wave wave = empty.take();
+                generator.generate(index++, wave);
+                ready.put(wave);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // Disposed.
+        }
+        catch (Throwable t)
+        {
+            failure = t;
+        }
+    }
+
+    @Override
+    public Wave next()
+    {
+        Wave wave = ready.poll();
+        if(wave != null)
+            return wave;
+
+        stalls++;
+        try
+        {
+            while(wave == null)
+            {
+                if(failure != null)
+                    throw new IllegalStateException("Wave generation failed", failure);
+                wave = ready.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a wave", e);
+        }
+        return wave;
+    }
+
+    @Override
+    public void recycle(Wave wave)
+    {
+        empty.offer(wave);
+    }
+
+    @Override
+    public void dispose()
+    {
+        worker.interrupt();
+    }
+}
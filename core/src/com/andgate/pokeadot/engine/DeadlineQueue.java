@@ -0,0 +1,128 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * A binary min-heap of deadlines, each for a pokable id and a version of
+ * that id. Entries are never taken out early: when a pokable's deadline
+ * changes or it goes away, its version moves on, and the old entry is
+ * thrown away once it reaches the top.
+ */
+public class DeadlineQueue
+{
+    private float[] times = new float[64];
+    private int[] ids = new int[64];
+    private int[] versions = new int[64];
+    private int size = 0;
+
+    // The entry taken by the last poll().
+    public float polledTime;
+    public int polledId;
+    public int polledVersion;
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /** The earliest deadline. Only valid while the queue isn't empty. */
+    public float peekTime()
+    {
+        return times[0];
+    }
+
+    public void add(float time, int id, int version)
+    {
+        if(size == times.length)
+            grow();
+
+        int i = size++;
+        while(i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if(times[parent] <= time)
+                break;
+            set(i, times[parent], ids[parent], versions[parent]);
+            i = parent;
+        }
+        set(i, time, id, version);
+    }
+
+    /** Takes the earliest entry into the polled fields. */
+    public void poll()
+    {
+        polledTime = times[0];
+        polledId = ids[0];
+        polledVersion = versions[0];
+
+        size--;
+        if(size == 0)
+            return;
+
+        float time = times[size];
+        int id = ids[size];
+        int version = versions[size];
+
+        int i = 0;
+        int half = size >>> 1;
+        while(i < half)
+        {
+            int child = 2 * i + 1;
+            if(child + 1 < size && times[child + 1] < times[child])
+                child++;
+            if(time <= times[child])
+                break;
+            set(i, times[child], ids[child], versions[child]);
+            i = child;
+        }
+        set(i, time, id, version);
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    private void set(int i, float time, int id, int version)
+    {
+        times[i] = time;
+        ids[i] = id;
+        versions[i] = version;
+    }
+
+    private void grow()
+    {
+        int capacity = times.length * 2;
+
+        float[] newTimes = new float[capacity];
+        System.arraycopy(times, 0, newTimes, 0, size);
+        times = newTimes;
+
+        int[] newIds = new int[capacity];
+        System.arraycopy(ids, 0, newIds, 0, size);
+        ids = newIds;
+
+        int[] newVersions = new int[capacity];
+        System.arraycopy(versions, 0, newVersions, 0, size);
+        versions = newVersions;
+    }
+}
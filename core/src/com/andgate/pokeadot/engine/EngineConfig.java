@@ -0,0 +1,89 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * Everything a GameEngine needs to know about the game it runs. The
+ * defaults are the ones in EngineConstants, tools can change any of them.
+ */
+public class EngineConfig
+{
+    public GameEngine.Rules rules;
+
+    public float worldWidth;
+    public float worldHeight;
+    // Keeps spawns clear of the pause button along the bottom.
+    public float spawnBottom = EngineConstants.SPAWN_BOTTOM;
+
+    public float minimumSpawnTime = EngineConstants.MINIMUM_SPAWN_TIME;
+    public float maximumSpawnTime = EngineConstants.MAXIMUM_SPAWN_TIME;
+    public float minimumLifeTime = EngineConstants.MINIMUM_LIFE_TIME;
+    public float maximumLifeTime = EngineConstants.MAXIMUM_LIFE_TIME;
+    public int minimumSpawnCount = EngineConstants.MINIMUM_SPAWN_COUNT;
+    public int maximumSpawnCount = EngineConstants.MAXIMUM_SPAWN_COUNT;
+    public float minimumRadius = EngineConstants.MINIMUM_CIRCLE_RADIUS;
+    public float maximumRadius = EngineConstants.MAXIMUM_CIRCLE_RADIUS;
+    // Each wave gets this many candidates per pokable it wants, and each
+    // candidate this many throws to find a free spot.
+    public int spawnCandidates = 3;
+    public int spawnAttempts = 10;
+
+    // Generate waves on a worker thread, this many ahead.
+    public boolean backgroundWaves = false;
+    public int wavesAhead = 4;
+
+    // Stores at least this big work out their radii on a fork-join pool.
+    // Older Android versions don't have fork-join, so it's off by default.
+    public int parallelThreshold = Integer.MAX_VALUE;
+
+    // The game ends after this many seconds, if above zero.
+    public float timeLimit = 0.0f;
+
+    public float step = EngineConstants.SIMULATION_STEP;
+    public int maximumSteps = EngineConstants.MAXIMUM_SIMULATION_STEPS;
+
+    public EngineConfig(GameEngine.Rules rules, float worldWidth, float worldHeight)
+    {
+        this.rules = rules;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    public EngineConfig(EngineConfig other)
+    {
+        rules = other.rules;
+        worldWidth = other.worldWidth;
+        worldHeight = other.worldHeight;
+        spawnBottom = other.spawnBottom;
+        minimumSpawnTime = other.minimumSpawnTime;
+        maximumSpawnTime = other.maximumSpawnTime;
+        minimumLifeTime = other.minimumLifeTime;
+        maximumLifeTime = other.maximumLifeTime;
+        minimumSpawnCount = other.minimumSpawnCount;
+        maximumSpawnCount = other.maximumSpawnCount;
+        minimumRadius = other.minimumRadius;
+        maximumRadius = other.maximumRadius;
+        spawnCandidates = other.spawnCandidates;
+        spawnAttempts = other.spawnAttempts;
+        backgroundWaves = other.backgroundWaves;
+        wavesAhead = other.wavesAhead;
+        parallelThreshold = other.parallelThreshold;
+        timeLimit = other.timeLimit;
+        step = other.step;
+        maximumSteps = other.maximumSteps;
+    }
+}
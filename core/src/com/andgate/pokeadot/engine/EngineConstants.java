@@ -0,0 +1,52 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * The numbers the simulation is tuned with. Constants repeats them for
+ * the game, they live here so the engine and everything that only runs
+ * the engine can do without libGDX.
+ */
+public class EngineConstants
+{
+    public static final int WORLD_HEIGHT = 30;
+    // Spawns stay clear of the pause button, which is this tall.
+    public static final float SPAWN_BOTTOM = 4.0f;
+
+    public final static float MINIMUM_SPAWN_TIME = 0.5f;
+    public final static float MAXIMUM_SPAWN_TIME = 1.5f;
+    public final static float MINIMUM_LIFE_TIME = 1.0f;
+    public final static float MAXIMUM_LIFE_TIME = 4.0f;
+    public final static int MINIMUM_SPAWN_COUNT = 3;
+    public final static int MAXIMUM_SPAWN_COUNT = 10;
+    public final static float MINIMUM_CIRCLE_RADIUS = 3.0f;
+    public final static float MAXIMUM_CIRCLE_RADIUS = 8.0f;
+
+    public final static float SWARM_MINIMUM_SPAWN_TIME = 0.25f;
+    public final static float SWARM_MAXIMUM_SPAWN_TIME = 0.75f;
+    public final static float SWARM_MINIMUM_LIFE_TIME = 4.0f;
+    public final static float SWARM_MAXIMUM_LIFE_TIME = 8.0f;
+    public final static int SWARM_MINIMUM_SPAWN_COUNT = 100;
+    public final static int SWARM_MAXIMUM_SPAWN_COUNT = 300;
+    public final static float SWARM_MINIMUM_CIRCLE_RADIUS = 0.15f;
+    public final static float SWARM_MAXIMUM_CIRCLE_RADIUS = 0.4f;
+    public static final float SWARM_TIME_LIMIT = 60.0f; // seconds
+    public static final int PARALLEL_THRESHOLD = 2048; // pokables
+
+    public static final float SIMULATION_STEP = 1.0f / 120.0f;
+    public static final int MAXIMUM_SIMULATION_STEPS = 30; // per frame
+}
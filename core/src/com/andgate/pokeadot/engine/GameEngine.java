@@ -0,0 +1,497 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The rules of Poke-A-Dot, with no graphics, sound or input attached:
+ * the wave schedule, pokable lifecycle, touch resolution, scoring and
+ * when the game is over. It only moves in fixed steps, so a seed and the
+ * touches it was fed are all it takes to play a session out again.
+ *
+ * None of this touches Gdx, so it runs without a GL context, as many
+ * sessions at once as there are threads to run them.
+ */
+public class GameEngine
+{
+    public enum Rules
+    {
+        // The game is over when the first pokable expires.
+        SURVIVAL,
+        // Pokables expire without consequence.
+        ENDLESS
+    }
+
+    public final EngineConfig config;
+    public final PokableStore pokables;
+
+    private final long seed;
+    private final WaveSource waves;
+    private Wave wave;
+
+    private EngineListener listener = EngineListener.NONE;
+
+    /** Touches from the input thread, applied at the start of the step they happened in. */
+    public final TouchQueue touches = new TouchQueue(256);
+    /** Event time of the queued touch being applied, or -1 outside of one. */
+    public long touchTime = -1L;
+    /** Drags skipped for being too close to the last one applied. */
+    public int coalesced = 0;
+
+    private static final int MAXIMUM_POINTERS = 20;
+    private final float[] lastDragX = new float[MAXIMUM_POINTERS];
+    private final float[] lastDragY = new float[MAXIMUM_POINTERS];
+
+    // Wall-clock time, from System.nanoTime(), that the current step ends at.
+    private long stepEndNanos = Long.MAX_VALUE;
+
+    public long tick = 0L;
+    public float gameTime = 0.0f;
+    public int hits = 0;
+    public int missed = 0;
+    public int expired = 0;
+    /** Pokables that waves wanted but found no room for. */
+    public int dropped = 0;
+    /** Pokables that waves wanted but populationCap held back. */
+    public int throttled = 0;
+
+    // Waves stop placing pokables while this many are alive.
+    private int populationCap = Integer.MAX_VALUE;
+    private boolean over = false;
+
+    private SessionRecorder recorder;
+
+    // Touches land on a 16 bit grid over the world, the same live as
+    // replayed from a recording.
+    private static final float TOUCH_GRID = 65535.0f;
+
+    private float spawnWaitTime;
+    private float nextSpawnTime;
+
+    private float stepAccumulator = 0.0f;
+
+    public GameEngine(EngineConfig config, long seed)
+    {
+        this.config = config;
+        this.seed = seed;
+
+        pokables = new PokableStore(config);
+        waves = config.backgroundWaves
+                ? new BackgroundWaveSource(config, seed)
+                : new WaveGenerator(config, seed);
+
+        forceSpawn();
+    }
+
+    public void setListener(EngineListener listener)
+    {
+        this.listener = listener != null ? listener : EngineListener.NONE;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    public boolean isOver()
+    {
+        return over;
+    }
+
+    /**
+     * Records everything that goes into the engine from here on. It has
+     * to be set before the first step.
+     */
+    public void setRecorder(SessionRecorder recorder)
+    {
+        if(tick != 0L)
+            throw new IllegalStateException("Recording has to start before the first step");
+
+        this.recorder = recorder;
+        recorder.begin(this);
+    }
+
+    /**
+     * Stops wave generation and finishes the recording, the engine can't
+     * step after this.
+     */
+    public void dispose()
+    {
+        waves.dispose();
+
+        if(recorder != null)
+        {
+            recorder.finish(this);
+            recorder = null;
+        }
+    }
+
+    /** Ends the game early, like the stop button does. */
+    public void end()
+    {
+        over = true;
+    }
+
+    public void setWorldSize(float worldWidth, float worldHeight)
+    {
+        config.worldWidth = worldWidth;
+        config.worldHeight = worldHeight;
+        pokables.setBounds(worldWidth, worldHeight);
+
+        if(recorder != null)
+            recorder.worldSize(tick, worldWidth, worldHeight);
+    }
+
+    public int getPopulationCap()
+    {
+        return populationCap;
+    }
+
+    /** How many times a step had to wait for the wave worker to catch up. */
+    public int getWaveStalls()
+    {
+        if(waves instanceof BackgroundWaveSource)
+            return ((BackgroundWaveSource)waves).stalls;
+        return 0;
+    }
+
+    /** Waves stop placing pokables while this many are alive. */
+    public void setPopulationCap(int cap)
+    {
+        if(cap == populationCap)
+            return;
+
+        populationCap = cap;
+        if(recorder != null)
+            recorder.populationCap(tick, cap);
+    }
+
+    /**
+     * Feeds real time into the fixed step. At most config.maximumSteps
+     * worth of time is taken from one call; a longer stall is dropped
+     * rather than replayed, or each slow frame would make the next one
+     * slower.
+     *
+     * Each step stands for a slice of wall-clock time ending at now, less
+     * what's left in the accumulator after it. Queued touches are applied
+     * by the step whose slice they fall in.
+     *
+     * @param now System.nanoTime() at the start of the frame
+     * @return the number of steps taken
+     */
+    public int advance(float delta, long now)
+    {
+        stepAccumulator += Math.min(delta, config.step * config.maximumSteps);
+
+        int steps = 0;
+        while(stepAccumulator >= config.step && !over)
+        {
+            stepAccumulator -= config.step;
+            stepEndNanos = now - (long)(stepAccumulator * 1e9f);
+            step();
+            steps++;
+        }
+        stepEndNanos = Long.MAX_VALUE;
+
+        return steps;
+    }
+
+    /** How far real time is between the last step and the next one, from 0 to 1. */
+    public float getAlpha()
+    {
+        return stepAccumulator / config.step;
+    }
+
+    /**
+     * The simulation time to draw at. It trails the last step by one step
+     * less the alpha, so frames move smoothly between steps.
+     */
+    public float getRenderTime()
+    {
+        return pokables.time - (1.0f - getAlpha()) * config.step;
+    }
+
+    public void step()
+    {
+        if(over)
+            return;
+
+        float delta = config.step;
+
+        if(recorder != null)
+            recorder.beforeStep(this);
+
+        applyTouches();
+
+        tick++;
+        gameTime += delta;
+        pokables.update(delta);
+        expired += pokables.removeFinished();
+
+        if(config.rules == Rules.SURVIVAL && expired > 0)
+            over = true;
+        if(config.timeLimit > 0.0f && gameTime >= config.timeLimit)
+            over = true;
+
+        stepSpawn(delta);
+    }
+
+    /**
+     * Applies queued touches up to the end of the current step. Touches
+     * that happened earlier than that, even before the step's slice, have
+     * waited long enough and go in now. A drag that hasn't moved by the
+     * smallest radius since the last one applied for its pointer can't
+     * reach a pokable the last one didn't, so it's skipped.
+     */
+    private void applyTouches()
+    {
+        while(!touches.isEmpty() && touches.peekTime() <= stepEndNanos && !over)
+        {
+            touches.poll();
+
+            touchTime = touches.polledTime;
+            applyTouch(touches.polledType, touches.polledPointer,
+                       toGridX(touches.polledX), toGridY(touches.polledY));
+            touchTime = -1L;
+        }
+    }
+
+    /**
+     * Pokes the world at the given point. Every pokable under it pops.
+     *
+     * @return true if anything was hit
+     */
+    public boolean touch(float worldX, float worldY)
+    {
+        return applyTouch(TouchQueue.DOWN, -1, toGridX(worldX), toGridY(worldY));
+    }
+
+    /** Takes a touch already on the touch grid, which is all a recording has. */
+    boolean applyTouch(byte type, int pointer, int gridX, int gridY)
+    {
+        if(over)
+            return false;
+
+        if(recorder != null)
+            recorder.touch(tick, type == TouchQueue.DOWN ? SessionRecorder.DOWN : SessionRecorder.DRAG,
+                           pointer, gridX, gridY);
+
+        float x = gridX * config.worldWidth / TOUCH_GRID;
+        float y = gridY * config.worldHeight / TOUCH_GRID;
+        boolean tracked = pointer >= 0 && pointer < MAXIMUM_POINTERS;
+
+        if(type == TouchQueue.DRAG && tracked)
+        {
+            float dx = x - lastDragX[pointer];
+            float dy = y - lastDragY[pointer];
+            if(dx * dx + dy * dy < config.minimumRadius * config.minimumRadius)
+            {
+                coalesced++;
+                return false;
+            }
+        }
+
+        if(tracked)
+        {
+            lastDragX[pointer] = x;
+            lastDragY[pointer] = y;
+        }
+
+        return poke(x, y, type == TouchQueue.DOWN);
+    }
+
+    private int toGridX(float worldX)
+    {
+        return toGrid(worldX / config.worldWidth);
+    }
+
+    private int toGridY(float worldY)
+    {
+        return toGrid(worldY / config.worldHeight);
+    }
+
+    private static int toGrid(float fraction)
+    {
+        return Math.round(Math.max(0.0f, Math.min(1.0f, fraction)) * TOUCH_GRID);
+    }
+
+    /** Drags only pop what they pass over, they don't miss. */
+    private boolean poke(float worldX, float worldY, boolean canMiss)
+    {
+        if(over)
+            return false;
+
+        int found = pokables.findContaining(worldX, worldY);
+        for(int f = 0; f < found; f++)
+        {
+            int slot = pokables.found[f];
+
+            hits++;
+            pokables.hit(slot);
+            listener.hit(this, slot);
+        }
+
+        if(found == 0 && canMiss)
+        {
+            missed++;
+            listener.missed(this);
+        }
+
+        return found > 0;
+    }
+
+    /**
+     * Writes everything that decides how the game goes on from here, so
+     * loadState() can pick it up at this tick. Only between steps.
+     */
+    void saveState(ByteBuffer out)
+    {
+        out.putFloat(gameTime);
+        SessionRecorder.putVarint(out, hits);
+        SessionRecorder.putVarint(out, missed);
+        SessionRecorder.putVarint(out, expired);
+        SessionRecorder.putVarint(out, dropped);
+        SessionRecorder.putVarint(out, throttled);
+        SessionRecorder.putVarint(out, coalesced);
+        SessionRecorder.putVarint(out, populationCap);
+
+        // The wave being waited on. Waves only depend on their index, so
+        // that's all it takes to get it and every wave after it back.
+        SessionRecorder.putVarint(out, wave.index);
+        out.putFloat(spawnWaitTime);
+
+        out.putFloat(config.worldWidth);
+        out.putFloat(config.worldHeight);
+
+        // Pointers past the last one that dragged have nothing to keep.
+        int pointers = MAXIMUM_POINTERS;
+        while(pointers > 0 && lastDragX[pointers - 1] == 0.0f && lastDragY[pointers - 1] == 0.0f)
+            pointers--;
+        out.put((byte)pointers);
+        for(int pointer = 0; pointer < pointers; pointer++)
+        {
+            out.putFloat(lastDragX[pointer]);
+            out.putFloat(lastDragY[pointer]);
+        }
+
+        pokables.save(out);
+    }
+
+    /**
+     * Picks up the game where saveState() left it at the given tick. Only
+     * engines that generate their own waves can do this.
+     */
+    void loadState(ByteBuffer in, long atTick)
+    {
+        if(!(waves instanceof WaveGenerator))
+            throw new IllegalStateException("Background waves can't be rewound");
+
+        tick = atTick;
+        over = false;
+        stepAccumulator = 0.0f;
+
+        gameTime = in.getFloat();
+        hits = (int)SessionRecorder.getVarint(in);
+        missed = (int)SessionRecorder.getVarint(in);
+        expired = (int)SessionRecorder.getVarint(in);
+        dropped = (int)SessionRecorder.getVarint(in);
+        throttled = (int)SessionRecorder.getVarint(in);
+        coalesced = (int)SessionRecorder.getVarint(in);
+        populationCap = (int)SessionRecorder.getVarint(in);
+
+        ((WaveGenerator)waves).seek((int)SessionRecorder.getVarint(in));
+        newSpawn();
+        spawnWaitTime = in.getFloat();
+
+        config.worldWidth = in.getFloat();
+        config.worldHeight = in.getFloat();
+        pokables.setBounds(config.worldWidth, config.worldHeight);
+
+        int pointers = in.get();
+        for(int pointer = 0; pointer < MAXIMUM_POINTERS; pointer++)
+        {
+            lastDragX[pointer] = pointer < pointers ? in.getFloat() : 0.0f;
+            lastDragY[pointer] = pointer < pointers ? in.getFloat() : 0.0f;
+        }
+
+        pokables.load(in);
+    }
+
+    private void forceSpawn()
+    {
+        newSpawn();
+        nextSpawnTime = 0.0f;
+        stepSpawn(0.0f);
+    }
+
+    private void stepSpawn(float delta)
+    {
+        spawnWaitTime += delta;
+        if(spawnWaitTime >= nextSpawnTime)
+        {
+            placeWave();
+            newSpawn();
+        }
+    }
+
+    private void newSpawn()
+    {
+        if(wave != null)
+            waves.recycle(wave);
+
+        wave = waves.next();
+        spawnWaitTime = 0.0f;
+        nextSpawnTime = wave.delay;
+    }
+
+    /**
+     * Places candidates in order until the wave has all it wants. Each
+     * candidate costs one check against the pokables on screen, and
+     * whatever still doesn't fit after the last one is counted as dropped.
+     */
+    private void placeWave()
+    {
+        int placed = 0;
+        for(int i = 0; i < wave.candidateCount && placed < wave.count; i++)
+        {
+            if(pokables.size >= populationCap)
+            {
+                throttled += wave.count - placed;
+                return;
+            }
+
+            PokableSpawn spawn = wave.candidates[i];
+            if(fits(spawn) && !pokables.overlaps(spawn.x, spawn.y, spawn.radius))
+            {
+                pokables.add(spawn);
+                placed++;
+            }
+        }
+
+        dropped += wave.count - placed;
+    }
+
+    /** Waves made before a resize may not fit the world any more. */
+    private boolean fits(PokableSpawn spawn)
+    {
+        return spawn.x - spawn.radius >= 0.0f
+                && spawn.x + spawn.radius <= config.worldWidth
+                && spawn.y - spawn.radius >= config.spawnBottom
+                && spawn.y + spawn.radius <= config.worldHeight;
+    }
+}
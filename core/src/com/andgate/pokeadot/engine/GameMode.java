@@ -0,0 +1,31 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * The ways there are to play. Replays store the ordinal, so new modes go
+ * on the end.
+ */
+public enum GameMode
+{
+    PLAY,
+    PRACTICE,
+    DAILY,
+    SWARM,
+    GHOST,
+    NONE
+}
@@ -0,0 +1,84 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out the radii of a big PokableStore on a fork-join pool shared
+ * by every store. Each slot's radius only depends on that slot, so the
+ * result is the same however the range gets split.
+ *
+ * Kept apart from PokableStore because older Android versions don't have
+ * fork-join at all.
+ */
+class ParallelRadii
+{
+    private static ForkJoinPool pool;
+
+    private final int chunkSize;
+
+    ParallelRadii(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    private static synchronized ForkJoinPool getPool()
+    {
+        if(pool == null)
+            pool = new ForkJoinPool();
+        return pool;
+    }
+
+    void evaluate(PokableStore store, float atTime)
+    {
+        getPool().invoke(new RadiusTask(store, atTime, 0, store.size));
+    }
+
+    private class RadiusTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final PokableStore store;
+        private final float atTime;
+        private final int from;
+        private final int to;
+
+        RadiusTask(PokableStore store, float atTime, int from, int to)
+        {
+            this.store = store;
+            this.atTime = atTime;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= chunkSize)
+            {
+                store.evaluate(atTime, from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RadiusTask(store, atTime, from, middle),
+                      new RadiusTask(store, atTime, middle, to));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * A pokable that hasn't been placed yet. Spawns belong to the Wave that
+ * holds them and are copied into the PokableStore when placed, so the
+ * same objects are filled again wave after wave.
+ */
+public class PokableSpawn
+{
+    public float x;
+    public float y;
+    public float radius;
+    public float lifeTime;
+    public float hue;
+}
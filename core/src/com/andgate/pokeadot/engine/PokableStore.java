@@ -0,0 +1,538 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Every live pokable, kept as parallel primitive arrays instead of one
+ * object per dot. Index i across all the arrays is one pokable. Finished
+ * pokables are removed by moving the last one into their slot, so the
+ * live ones are always packed into [0, size).
+ *
+ * A pokable's radius is a straight line in time: it shrinks from its
+ * spawn radius to nothing over its life, or, once hit, swells a little
+ * and then collapses. So nothing is stepped per pokable. The radius is
+ * worked out from the store's clock whenever something asks for it, and
+ * the only moments that change anything, an expiry or the end of a pop,
+ * wait in a DeadlineQueue. An update costs what happens in it, not how
+ * many pokables there are.
+ *
+ * The queue can't hold slots, they change on every removal. Each pokable
+ * gets an id that stays put while it lives, and a version that moves on
+ * whenever its deadline does, so stale entries can be told apart.
+ *
+ * The arrays only grow, so once the store has held its peak population
+ * spawning doesn't allocate.
+ *
+ * Hittable pokables are also filed in a SpatialGrid under their spawn
+ * radius, the largest they'll ever be. The overlap and point queries go
+ * through the grid instead of walking every pokable, then check the
+ * radius at the current time.
+ */
+public class PokableStore
+{
+    public static final byte ACTIVE = 0;
+    public static final byte HIT = 1;
+    public static final byte DESTRUCT = 2;
+    public static final byte EXPIRED = 3;
+
+    private static final float MAX_POP_TIME
+            = 0.25f;
+    private static final float MAX_IMPLODE_TIME
+            = MAX_POP_TIME * (2.0f / 3.0f);
+    private static final float MAX_EXPLODE_TIME
+            = MAX_POP_TIME * (1.0f / 3.0f);
+    private final static float EXPLODE_FACTOR
+            = 0.2f;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int CHUNK_SIZE = 512;
+
+    public int size = 0;
+    /** The store's clock, in seconds of simulation. */
+    public float time = 0.0f;
+
+    public float[] x;
+    public float[] y;
+    public float[] spawnRadius;
+    public float[] spawnTime;
+    public float[] lifeTime;
+    /** When it was hit, and how big it was then. */
+    public float[] hitTime;
+    public float[] hitRadius;
+    /** When it expires, or when its pop ends once hit. */
+    public float[] deadline;
+    /** Color of each pokable, drawing turns it into RGB. */
+    public float[] hue;
+    public byte[] state;
+    public int[] id;
+
+    /** Radii at the time given to the last evaluate(), for drawing. */
+    public float[] visualRadius;
+
+    private final float cellSize;
+    private final float minimumHittableRadius;
+    private SpatialGrid grid;
+
+    private final DeadlineQueue deadlines = new DeadlineQueue();
+    // Where each id lives, and its current version.
+    private int[] idSlot = new int[INITIAL_CAPACITY];
+    private int[] idVersion = new int[INITIAL_CAPACITY];
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeIdCount = 0;
+    private int nextId = 0;
+
+    // Slots that destructed or expired since the last removeFinished().
+    private int[] finished = new int[INITIAL_CAPACITY];
+    private int finishedCount = 0;
+
+    private final int parallelThreshold;
+    private ParallelRadii parallelRadii;
+
+    /** Slots found by the last findContaining(). */
+    public int[] found = new int[INITIAL_CAPACITY];
+
+    private float queryX;
+    private float queryY;
+    private float queryRadius;
+    private final SpatialGrid.Visitor overlapVisitor = new SpatialGrid.Visitor() {
+        @Override
+        public boolean visit(int slot) {
+            float dx = x[slot] - queryX;
+            float dy = y[slot] - queryY;
+            float radiusSum = getHittableRadius(slot) + queryRadius;
+            return dx * dx + dy * dy < radiusSum * radiusSum;
+        }
+    };
+
+    public PokableStore(EngineConfig config)
+    {
+        cellSize = config.maximumRadius;
+        minimumHittableRadius = config.minimumRadius;
+        parallelThreshold = config.parallelThreshold;
+
+        allocate(INITIAL_CAPACITY);
+        setBounds(config.worldWidth, config.worldHeight);
+    }
+
+    /** Rebuilds the grid for a world of a new size. */
+    public void setBounds(float worldWidth, float worldHeight)
+    {
+        grid = new SpatialGrid(worldWidth, worldHeight, cellSize);
+        for(int i = 0; i < size; i++)
+        {
+            if(state[i] == ACTIVE)
+                grid.insert(i, x[i], y[i], spawnRadius[i]);
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        x = copyOf(x, capacity);
+        y = copyOf(y, capacity);
+        spawnRadius = copyOf(spawnRadius, capacity);
+        spawnTime = copyOf(spawnTime, capacity);
+        lifeTime = copyOf(lifeTime, capacity);
+        hitTime = copyOf(hitTime, capacity);
+        hitRadius = copyOf(hitRadius, capacity);
+        deadline = copyOf(deadline, capacity);
+        hue = copyOf(hue, capacity);
+        visualRadius = copyOf(visualRadius, capacity);
+
+        int[] newId = new int[capacity];
+        if(id != null)
+            System.arraycopy(id, 0, newId, 0, size);
+        id = newId;
+
+        byte[] newState = new byte[capacity];
+        if(state != null)
+            System.arraycopy(state, 0, newState, 0, size);
+        state = newState;
+    }
+
+    private float[] copyOf(float[] array, int capacity)
+    {
+        float[] newArray = new float[capacity];
+        if(array != null)
+            System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+    public int add(PokableSpawn spawn)
+    {
+        return add(spawn.x, spawn.y, spawn.radius, spawn.lifeTime, spawn.hue);
+    }
+
+    public int add(float x, float y, float radius, float lifeTime, float hue)
+    {
+        if(size == state.length)
+            allocate(size * 2);
+
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.spawnRadius[i] = radius;
+        this.spawnTime[i] = time;
+        this.lifeTime[i] = lifeTime;
+        this.hitTime[i] = 0.0f;
+        this.hitRadius[i] = 0.0f;
+        this.deadline[i] = time + lifeTime;
+        this.hue[i] = hue;
+        this.visualRadius[i] = radius;
+        this.state[i] = ACTIVE;
+
+        int newId = obtainId();
+        this.id[i] = newId;
+        idSlot[newId] = i;
+        deadlines.add(deadline[i], newId, idVersion[newId]);
+
+        grid.insert(i, x, y, radius);
+        return i;
+    }
+
+    /**
+     * Moves the clock on and settles every deadline it passes. Pokables
+     * that expire or finish popping here are removed by removeFinished().
+     */
+    public void update(float delta)
+    {
+        time += delta;
+
+        while(!deadlines.isEmpty() && deadlines.peekTime() <= time)
+        {
+            deadlines.poll();
+            int pokable = deadlines.polledId;
+            if(deadlines.polledVersion != idVersion[pokable])
+                continue;
+
+            int i = idSlot[pokable];
+            state[i] = state[i] == ACTIVE ? EXPIRED : DESTRUCT;
+            // Nothing waits on this id again until it's handed out anew.
+            idVersion[pokable]++;
+            addFinished(i);
+        }
+    }
+
+    public void hit(int i)
+    {
+        float radius = getRadius(i, time);
+        float peak = radius + spawnRadius[i] * EXPLODE_FACTOR;
+
+        state[i] = HIT;
+        hitTime[i] = time;
+        hitRadius[i] = radius;
+        deadline[i] = time + MAX_EXPLODE_TIME + peak / spawnRadius[i] * MAX_IMPLODE_TIME;
+
+        // The expiry entry goes stale, the end of the pop takes its place.
+        int pokable = id[i];
+        idVersion[pokable]++;
+        deadlines.add(deadline[i], pokable, idVersion[pokable]);
+
+        grid.remove(i);
+    }
+
+    /** The radius of a pokable at the given time, which may be between updates. */
+    public float getRadius(int i, float atTime)
+    {
+        float radius;
+        switch(state[i])
+        {
+            case ACTIVE:
+                radius = spawnRadius[i] * (1.0f - (atTime - spawnTime[i]) / lifeTime[i]);
+                break;
+            case HIT:
+                float popTime = atTime - hitTime[i];
+                if(popTime < MAX_EXPLODE_TIME)
+                {
+                    radius = hitRadius[i]
+                            + spawnRadius[i] * EXPLODE_FACTOR * popTime / MAX_EXPLODE_TIME;
+                }
+                else
+                {
+                    radius = hitRadius[i] + spawnRadius[i] * EXPLODE_FACTOR
+                            - spawnRadius[i] * (popTime - MAX_EXPLODE_TIME) / MAX_IMPLODE_TIME;
+                }
+                break;
+            default:
+                radius = 0.0f;
+                break;
+        }
+        return radius > 0.0f ? radius : 0.0f;
+    }
+
+    /** How close a poke has to be right now. Shrinking pokables stay big enough to hit. */
+    public float getHittableRadius(int i)
+    {
+        if(state[i] != ACTIVE)
+            return 0.0f;
+
+        float radius = getRadius(i, time);
+        return radius >= minimumHittableRadius ? radius : minimumHittableRadius;
+    }
+
+    /** Seconds until an active pokable expires. */
+    public float getTimeLeft(int i)
+    {
+        return deadline[i] - time;
+    }
+
+    /** Fills visualRadius with every pokable's radius at the given time. */
+    public void evaluate(float atTime)
+    {
+        if(size >= parallelThreshold && size > CHUNK_SIZE)
+        {
+            // Only made once it's needed, so platforms without fork-join never load it.
+            if(parallelRadii == null)
+                parallelRadii = new ParallelRadii(CHUNK_SIZE);
+            parallelRadii.evaluate(this, atTime);
+        }
+        else
+        {
+            evaluate(atTime, 0, size);
+        }
+    }
+
+    /** Fills visualRadius for slots [from, to). Ranges can run at the same time. */
+    void evaluate(float atTime, int from, int to)
+    {
+        for(int i = from; i < to; i++)
+            visualRadius[i] = getRadius(i, atTime);
+    }
+
+    public boolean isVisible(int i)
+    {
+        return state[i] == ACTIVE || state[i] == HIT;
+    }
+
+    public boolean contains(int i, float pointX, float pointY)
+    {
+        float dx = x[i] - pointX;
+        float dy = y[i] - pointY;
+        float radius = getHittableRadius(i);
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    public boolean overlaps(float circleX, float circleY, float circleRadius)
+    {
+        queryX = circleX;
+        queryY = circleY;
+        queryRadius = circleRadius;
+        return grid.query(circleX, circleY, circleRadius, overlapVisitor);
+    }
+
+    /**
+     * Finds every pokable whose hittable circle holds the point.
+     *
+     * @return how many were found, their slots are the start of found
+     */
+    public int findContaining(float pointX, float pointY)
+    {
+        int candidates = grid.queryPoint(pointX, pointY, found);
+        while(candidates < 0)
+        {
+            found = new int[found.length * 2];
+            candidates = grid.queryPoint(pointX, pointY, found);
+        }
+
+        int count = 0;
+        for(int i = 0; i < candidates; i++)
+        {
+            if(contains(found[i], pointX, pointY))
+                found[count++] = found[i];
+        }
+        return count;
+    }
+
+    /**
+     * Drops every destructed and expired pokable.
+     *
+     * @return how many of them had expired
+     */
+    public int removeFinished()
+    {
+        int expired = 0;
+
+        // Highest slot first, so the last slot moved down is never one
+        // still waiting to be removed.
+        Arrays.sort(finished, 0, finishedCount);
+        for(int f = finishedCount - 1; f >= 0; f--)
+        {
+            int i = finished[f];
+            if(state[i] == EXPIRED)
+            {
+                expired++;
+                // Hit pokables already left the grid when they were hit.
+                grid.remove(i);
+            }
+
+            freeId(id[i]);
+            move(size - 1, i);
+            size--;
+        }
+        finishedCount = 0;
+
+        return expired;
+    }
+
+    private void move(int from, int to)
+    {
+        if(from == to)
+            return;
+
+        if(state[from] == ACTIVE)
+            grid.move(from, to);
+        x[to] = x[from];
+        y[to] = y[from];
+        spawnRadius[to] = spawnRadius[from];
+        spawnTime[to] = spawnTime[from];
+        lifeTime[to] = lifeTime[from];
+        hitTime[to] = hitTime[from];
+        hitRadius[to] = hitRadius[from];
+        deadline[to] = deadline[from];
+        hue[to] = hue[from];
+        visualRadius[to] = visualRadius[from];
+        state[to] = state[from];
+        id[to] = id[from];
+        idSlot[id[to]] = to;
+    }
+
+    private void addFinished(int slot)
+    {
+        if(finishedCount == finished.length)
+        {
+            int[] newFinished = new int[finished.length * 2];
+            System.arraycopy(finished, 0, newFinished, 0, finishedCount);
+            finished = newFinished;
+        }
+        finished[finishedCount++] = slot;
+    }
+
+    private int obtainId()
+    {
+        if(freeIdCount > 0)
+            return freeIds[--freeIdCount];
+
+        if(nextId == idSlot.length)
+        {
+            int capacity = idSlot.length * 2;
+            int[] newIdSlot = new int[capacity];
+            System.arraycopy(idSlot, 0, newIdSlot, 0, nextId);
+            idSlot = newIdSlot;
+            int[] newIdVersion = new int[capacity];
+            System.arraycopy(idVersion, 0, newIdVersion, 0, nextId);
+            idVersion = newIdVersion;
+        }
+        return nextId++;
+    }
+
+    private void freeId(int pokable)
+    {
+        idSlot[pokable] = -1;
+        if(freeIdCount == freeIds.length)
+        {
+            int[] newFreeIds = new int[freeIds.length * 2];
+            System.arraycopy(freeIds, 0, newFreeIds, 0, freeIdCount);
+            freeIds = newFreeIds;
+        }
+        freeIds[freeIdCount++] = pokable;
+    }
+
+    /**
+     * Writes the clock and every pokable, in slot order. Only between
+     * steps, when nothing is waiting in removeFinished().
+     */
+    void save(ByteBuffer out)
+    {
+        out.putFloat(time);
+        SessionRecorder.putVarint(out, size);
+        for(int i = 0; i < size; i++)
+        {
+            out.put(state[i]);
+            out.putFloat(x[i]);
+            out.putFloat(y[i]);
+            out.putFloat(spawnRadius[i]);
+            out.putFloat(spawnTime[i]);
+            out.putFloat(lifeTime[i]);
+            out.putFloat(deadline[i]);
+            out.putFloat(hue[i]);
+            if(state[i] == HIT)
+            {
+                out.putFloat(hitTime[i]);
+                out.putFloat(hitRadius[i]);
+            }
+        }
+    }
+
+    /**
+     * Replaces everything with what save() wrote. Pokables get new ids,
+     * nothing outside the store ever sees them.
+     */
+    void load(ByteBuffer in)
+    {
+        clear();
+
+        time = in.getFloat();
+        int count = (int)SessionRecorder.getVarint(in);
+        if(count > state.length)
+            allocate(Integer.highestOneBit(count) * 2);
+
+        for(int i = 0; i < count; i++)
+        {
+            state[i] = in.get();
+            x[i] = in.getFloat();
+            y[i] = in.getFloat();
+            spawnRadius[i] = in.getFloat();
+            spawnTime[i] = in.getFloat();
+            lifeTime[i] = in.getFloat();
+            deadline[i] = in.getFloat();
+            hue[i] = in.getFloat();
+            if(state[i] == HIT)
+            {
+                hitTime[i] = in.getFloat();
+                hitRadius[i] = in.getFloat();
+            }
+            else
+            {
+                hitTime[i] = 0.0f;
+                hitRadius[i] = 0.0f;
+                grid.insert(i, x[i], y[i], spawnRadius[i]);
+            }
+            visualRadius[i] = getRadius(i, time);
+
+            int newId = obtainId();
+            id[i] = newId;
+            idSlot[newId] = i;
+            deadlines.add(deadline[i], newId, idVersion[newId]);
+        }
+        size = count;
+    }
+
+    public void clear()
+    {
+        for(int i = 0; i < size; i++)
+        {
+            idVersion[id[i]]++;
+            freeId(id[i]);
+        }
+        size = 0;
+        finishedCount = 0;
+        deadlines.clear();
+        grid.clear();
+    }
+}
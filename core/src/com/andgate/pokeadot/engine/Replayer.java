@@ -0,0 +1,163 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * Plays a recorded session out again on an engine of its own, with no
+ * screen, and checks it ends on the same score. Every event goes in at
+ * the tick it was recorded at, before that tick's step, the same place
+ * the live engine took it.
+ *
+ * seek() jumps about in the session: it loads the nearest keyframe at or
+ * before the tick asked for and steps on from there, so any tick is at
+ * most SessionRecorder.KEYFRAME_TICKS steps away.
+ */
+public class Replayer
+{
+    public final SessionReplay replay;
+    public GameEngine engine;
+
+    private final EngineConfig config;
+    // Whether the replay's current event is still to be applied, and
+    // whether it's a real event and not the end.
+    private boolean pending = false;
+    private boolean more = true;
+
+    public Replayer(SessionReplay replay)
+    {
+        this.replay = replay;
+
+        // Waves come out the same on any thread, so there's no point
+        // starting one here, and only generated waves can be rewound.
+        config = new EngineConfig(replay.config);
+        config.backgroundWaves = false;
+        restart();
+    }
+
+    private void restart()
+    {
+        engine = new GameEngine(new EngineConfig(config), replay.seed);
+        replay.rewind();
+        pending = false;
+    }
+
+    /** Runs the whole session. */
+    public void run()
+    {
+        playTo(Long.MAX_VALUE);
+
+        // It didn't end on its own, so the stop button ended it.
+        engine.end();
+        engine.dispose();
+    }
+
+    /**
+     * Puts the engine at the given tick, before anything that went in at
+     * that tick, or at the end of the session if it's past that.
+     */
+    public void seek(long tick)
+    {
+        int keyframe = replay.findKeyframe(tick);
+        long keyframeTick = keyframe >= 0 ? replay.getKeyframeTick(keyframe) : 0L;
+
+        // Playing on is cheaper when the engine's already past the keyframe.
+        if(tick >= engine.tick && engine.tick >= keyframeTick)
+        {
+            playTo(tick);
+            return;
+        }
+
+        if(keyframe >= 0)
+        {
+            replay.loadKeyframe(keyframe, engine);
+            pending = false;
+        }
+        else
+        {
+            restart();
+        }
+        playTo(tick);
+    }
+
+    /** Plays on until the engine reaches the given tick or the session ends. */
+    public void playTo(long tick)
+    {
+        while(!engine.isOver())
+        {
+            if(!pending)
+            {
+                more = replay.next();
+                pending = true;
+            }
+
+            if(!more || replay.eventTick >= tick)
+            {
+                stepTo(Math.min(tick, replay.eventTick));
+                return;
+            }
+
+            stepTo(replay.eventTick);
+            if(engine.isOver())
+                return;
+
+            apply();
+            pending = false;
+        }
+    }
+
+    private void stepTo(long tick)
+    {
+        while(engine.tick < tick && !engine.isOver())
+            engine.step();
+    }
+
+    private void apply()
+    {
+        switch(replay.eventType)
+        {
+            case SessionRecorder.DOWN:
+                engine.applyTouch(TouchQueue.DOWN, replay.eventPointer, replay.eventX, replay.eventY);
+                break;
+            case SessionRecorder.DRAG:
+                engine.applyTouch(TouchQueue.DRAG, replay.eventPointer, replay.eventX, replay.eventY);
+                break;
+            case SessionRecorder.CAP:
+                engine.setPopulationCap(replay.eventCap);
+                break;
+            case SessionRecorder.WORLD:
+                engine.setWorldSize(replay.eventWorldWidth, replay.eventWorldHeight);
+                break;
+        }
+    }
+
+    /** True if the replay ended on the recorded tick, hits, misses and game time. */
+    public boolean matches()
+    {
+        return engine.tick == replay.endTick
+                && engine.hits == replay.hits
+                && engine.missed == replay.missed
+                && Float.floatToIntBits(engine.gameTime) == Float.floatToIntBits(replay.gameTime);
+    }
+
+    public String describe()
+    {
+        return "recorded tick " + replay.endTick + ", " + replay.hits + " hits, "
+                + replay.missed + " missed, " + replay.gameTime + "s; replayed tick "
+                + engine.tick + ", " + engine.hits + " hits, "
+                + engine.missed + " missed, " + engine.gameTime + "s";
+    }
+}
@@ -0,0 +1,104 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * A small seedable xorshift128+ generator. Unlike MathUtils.random it
+ * belongs to whoever made it, so nothing else in the game can shift its
+ * sequence, and the same seed always plays out the same way.
+ */
+public class SessionRandom
+{
+    private long seed0;
+    private long seed1;
+
+    public SessionRandom(long seed)
+    {
+        setSeed(seed);
+    }
+
+    public void setSeed(long seed)
+    {
+        seed0 = mix(seed);
+        seed1 = mix(seed0);
+        if(seed0 == 0L && seed1 == 0L)
+            seed1 = 1L;
+    }
+
+    public long nextLong()
+    {
+        long s1 = seed0;
+        final long s0 = seed1;
+        seed0 = s0;
+        s1 ^= s1 << 23;
+        seed1 = s1 ^ s0 ^ (s1 >>> 17) ^ (s0 >>> 26);
+        return seed1 + s0;
+    }
+
+    /** Uniform in [0, 1). */
+    public float nextFloat()
+    {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /** Uniform in [start, end), like MathUtils.random(float, float). */
+    public float random(float start, float end)
+    {
+        return start + nextFloat() * (end - start);
+    }
+
+    /** Uniform in [start, end], like MathUtils.random(int, int). */
+    public int random(int start, int end)
+    {
+        long range = (long)end - start + 1;
+        return start + (int)(((nextLong() >>> 1) % range));
+    }
+
+    /** SplitMix64's finalizer, spreads nearby seeds far apart. */
+    public static long mix(long z)
+    {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** The seed everyone shares on the current UTC day. */
+    public static long dailySeed()
+    {
+        return dailySeed(System.currentTimeMillis());
+    }
+
+    /** The seed for the UTC day the given time falls on. */
+    public static long dailySeed(long millis)
+    {
+        Calendar today = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        today.setTimeInMillis(millis);
+        long date = today.get(Calendar.YEAR) * 10000L
+                + (today.get(Calendar.MONTH) + 1) * 100L
+                + today.get(Calendar.DAY_OF_MONTH);
+        return mix(date);
+    }
+
+    public static long randomSeed()
+    {
+        return mix(System.nanoTime() ^ System.currentTimeMillis());
+    }
+}
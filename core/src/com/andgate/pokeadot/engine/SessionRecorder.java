@@ -0,0 +1,425 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a session out as it's played: a header with the seed and the
+ * engine config, then every touch and outside change the engine saw,
+ * each tagged with the tick it went in at. That's all a Replayer needs
+ * to play the session out again, step for step.
+ *
+ * Every so often a keyframe with the engine's whole state goes in too,
+ * and an index of them goes at the end, so a replay can start from the
+ * keyframe nearest to any tick instead of from the first one.
+ *
+ * Events go into a buffer, and a full buffer is handed to a writer thread
+ * and swapped for an empty one, so recording costs a few bytes a touch
+ * and never waits on I/O during the session. Buffers are sized to hold a
+ * keyframe of the whole store; when the store grows, the writer grows the
+ * spare buffers off the game thread. Only finishing waits for the writer.
+ * An error stops the recording, not the game; getError() says what went
+ * wrong.
+ *
+ * Events are a varint of the ticks since the last event shifted over a
+ * 3 bit type, then the type's payload:
+ *   DOWN, DRAG  pointer + 1 as a byte, x and y as unsigned shorts
+ *   CAP         varint population cap
+ *   WORLD       world width and height as floats
+ *   KEY         int length, then the engine state, see GameEngine.saveState()
+ *   END         varint tick, varint hits, varint missed, float game time
+ *
+ * After END comes the keyframe index, a long tick and an int file offset
+ * for each, and then four ints: the offsets of END and of the index, the
+ * number of keyframes, and MAGIC again.
+ */
+public class SessionRecorder
+{
+    static final int MAGIC = 0x50414452; // "PADR"
+    static final int VERSION = 2;
+
+    static final int DOWN = 0;
+    static final int DRAG = 1;
+    static final int CAP = 2;
+    static final int WORLD = 3;
+    static final int KEY = 4;
+    static final int END = 7;
+    static final int TYPE_BITS = 3;
+
+    static final int INDEX_ENTRY_SIZE = 12;
+    static final int TRAILER_SIZE = 16;
+
+    /** Ticks between keyframes, ten seconds at the usual step. */
+    public static final int KEYFRAME_TICKS = 1200;
+
+    private static final int BUFFER_SIZE = 4096;
+    // The game thread only makes a buffer of its own when the writer has
+    // none to spare, and waits for one past this many.
+    private static final int MAXIMUM_BUFFERS = 8;
+    private static final long POLL_MILLIS = 20L;
+    // Handed to the writer after the last buffer.
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0);
+    private static final int MAXIMUM_EVENT_SIZE = 32;
+    // A keyframe's size, less what each pokable in it takes.
+    private static final int KEYFRAME_SIZE = 256;
+    private static final int KEYFRAME_POKABLE_SIZE = 41;
+
+    private final WritableByteChannel channel;
+    private final int mode;
+    private ByteBuffer buffer;
+    private int buffers = 0;
+
+    // Full buffers go to the writer, which hands them back empty.
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(MAXIMUM_BUFFERS);
+    private final BlockingQueue<ByteBuffer> empty = new ArrayBlockingQueue<ByteBuffer>(MAXIMUM_BUFFERS);
+    private Thread writer;
+    // The size the writer keeps spare buffers at.
+    private volatile int bufferSize = BUFFER_SIZE;
+
+    private long lastTick = 0L;
+    private long nextKeyframeTick = 0L;
+    private long[] keyframeTicks = new long[16];
+    private int[] keyframeOffsets = new int[16];
+    private int keyframeCount = 0;
+    // Bytes handed to the writer, and bytes it got into the channel.
+    private long handedOff = 0L;
+    private volatile long written = 0L;
+    private boolean finished = false;
+    private volatile IOException error;
+
+    /**
+     * @param mode whatever the caller wants to know the session by later,
+     *             it's kept in the header but means nothing to the engine
+     */
+    public SessionRecorder(WritableByteChannel channel, int mode)
+    {
+        this.channel = channel;
+        this.mode = mode;
+    }
+
+    public IOException getError()
+    {
+        return error;
+    }
+
+    /** Bytes the writer has got into the channel so far. */
+    public long getBytesWritten()
+    {
+        return written;
+    }
+
+    void begin(GameEngine engine)
+    {
+        EngineConfig config = engine.config;
+
+        bufferSize = getBufferSize(engine);
+        buffer = ByteBuffer.allocate(bufferSize);
+        empty.add(ByteBuffer.allocate(bufferSize));
+        buffers = 2;
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "SessionRecorder");
+        writer.setDaemon(true);
+        writer.start();
+
+        buffer.putInt(MAGIC);
+        buffer.put((byte)VERSION);
+        buffer.put((byte)mode);
+        buffer.putLong(engine.getSeed());
+
+        buffer.put((byte)config.rules.ordinal());
+        buffer.putFloat(config.worldWidth);
+        buffer.putFloat(config.worldHeight);
+        buffer.putFloat(config.spawnBottom);
+        buffer.putFloat(config.minimumSpawnTime);
+        buffer.putFloat(config.maximumSpawnTime);
+        buffer.putFloat(config.minimumLifeTime);
+        buffer.putFloat(config.maximumLifeTime);
+        buffer.putInt(config.minimumSpawnCount);
+        buffer.putInt(config.maximumSpawnCount);
+        buffer.putFloat(config.minimumRadius);
+        buffer.putFloat(config.maximumRadius);
+        buffer.putInt(config.spawnCandidates);
+        buffer.putInt(config.spawnAttempts);
+        buffer.putFloat(config.timeLimit);
+        buffer.putFloat(config.step);
+
+        lastTick = engine.tick;
+    }
+
+    void touch(long tick, int type, int pointer, int x, int y)
+    {
+        if(!event(tick, type, MAXIMUM_EVENT_SIZE))
+            return;
+
+        buffer.put((byte)(pointer + 1));
+        buffer.putShort((short)x);
+        buffer.putShort((short)y);
+    }
+
+    void populationCap(long tick, int cap)
+    {
+        if(!event(tick, CAP, MAXIMUM_EVENT_SIZE))
+            return;
+
+        putVarint(buffer, cap);
+    }
+
+    void worldSize(long tick, float worldWidth, float worldHeight)
+    {
+        if(!event(tick, WORLD, MAXIMUM_EVENT_SIZE))
+            return;
+
+        buffer.putFloat(worldWidth);
+        buffer.putFloat(worldHeight);
+    }
+
+    /** Puts a keyframe in at the start of every KEYFRAME_TICKS steps. */
+    void beforeStep(GameEngine engine)
+    {
+        // Let the writer get a bigger spare ready before it's needed.
+        int size = getBufferSize(engine);
+        if(size > bufferSize)
+            bufferSize = size;
+
+        if(engine.tick < nextKeyframeTick)
+            return;
+
+        nextKeyframeTick = engine.tick + KEYFRAME_TICKS;
+
+        int offset = getOffset();
+        if(!event(engine.tick, KEY, KEYFRAME_SIZE + engine.pokables.size * KEYFRAME_POKABLE_SIZE))
+            return;
+
+        int lengthAt = buffer.position();
+        buffer.putInt(0);
+        engine.saveState(buffer);
+        buffer.putInt(lengthAt, buffer.position() - lengthAt - 4);
+
+        if(keyframeCount == keyframeTicks.length)
+        {
+            long[] newTicks = new long[keyframeCount * 2];
+            System.arraycopy(keyframeTicks, 0, newTicks, 0, keyframeCount);
+            keyframeTicks = newTicks;
+            int[] newOffsets = new int[keyframeCount * 2];
+            System.arraycopy(keyframeOffsets, 0, newOffsets, 0, keyframeCount);
+            keyframeOffsets = newOffsets;
+        }
+        keyframeTicks[keyframeCount] = engine.tick;
+        keyframeOffsets[keyframeCount] = offset;
+        keyframeCount++;
+    }
+
+    /**
+     * Writes the final score after the last tick, then the keyframe index,
+     * and closes the channel.
+     */
+    void finish(GameEngine engine)
+    {
+        int endOffset = getOffset();
+        if(event(engine.tick, END, MAXIMUM_EVENT_SIZE + keyframeCount * INDEX_ENTRY_SIZE + TRAILER_SIZE))
+        {
+            putVarint(buffer, engine.tick);
+            putVarint(buffer, engine.hits);
+            putVarint(buffer, engine.missed);
+            buffer.putFloat(engine.gameTime);
+
+            int indexOffset = getOffset();
+            for(int i = 0; i < keyframeCount; i++)
+            {
+                buffer.putLong(keyframeTicks[i]);
+                buffer.putInt(keyframeOffsets[i]);
+            }
+
+            buffer.putInt(endOffset);
+            buffer.putInt(indexOffset);
+            buffer.putInt(keyframeCount);
+            buffer.putInt(MAGIC);
+            flush();
+        }
+        finished = true;
+
+        // The file has to be whole once the engine is disposed.
+        try
+        {
+            full.put(CLOSE);
+            writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            if(error == null)
+                error = e;
+        }
+    }
+
+    private int getOffset()
+    {
+        return (int)(handedOff + buffer.position());
+    }
+
+    /** Room for the events between keyframes and a keyframe of the whole store. */
+    private static int getBufferSize(GameEngine engine)
+    {
+        return BUFFER_SIZE + KEYFRAME_SIZE + engine.pokables.x.length * KEYFRAME_POKABLE_SIZE;
+    }
+
+    /** Starts an event with room for size bytes after its header. */
+    private boolean event(long tick, int type, int size)
+    {
+        if(finished || error != null)
+            return false;
+
+        int needed = size + 10;
+        if(buffer.remaining() < needed)
+            flush();
+        if(buffer.remaining() < needed)
+        {
+            // The store outgrew the spare before the writer saw it.
+            buffer = ByteBuffer.allocate(Math.max(needed, bufferSize));
+        }
+
+        putVarint(buffer, (tick - lastTick) << TYPE_BITS | type);
+        lastTick = tick;
+        return error == null;
+    }
+
+    /** Hands the buffer to the writer and carries on in an empty one. */
+    private void flush()
+    {
+        buffer.flip();
+        handedOff += buffer.remaining();
+        full.add(buffer);
+
+        buffer = empty.poll();
+        if(buffer == null)
+        {
+            if(buffers < MAXIMUM_BUFFERS)
+            {
+                buffers++;
+                buffer = ByteBuffer.allocate(bufferSize);
+            }
+            else
+            {
+                buffer = takeEmpty();
+            }
+        }
+    }
+
+    private ByteBuffer takeEmpty()
+    {
+        try
+        {
+            return empty.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            error = new IOException("Interrupted waiting for the writer");
+            return ByteBuffer.allocate(bufferSize);
+        }
+    }
+
+    /** The writer thread, until finish() has handed over the last buffer. */
+    private void write()
+    {
+        try
+        {
+            while(true)
+            {
+                ByteBuffer filled = full.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(filled == CLOSE)
+                    return;
+                if(filled == null)
+                {
+                    growSpare();
+                    continue;
+                }
+
+                if(error == null)
+                {
+                    try
+                    {
+                        while(filled.hasRemaining())
+                            written += channel.write(filled);
+                    }
+                    catch (IOException e)
+                    {
+                        error = e;
+                    }
+                }
+
+                filled.clear();
+                if(filled.capacity() < bufferSize)
+                    filled = ByteBuffer.allocate(bufferSize);
+                empty.add(filled);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            error = new IOException("Recording interrupted");
+        }
+    }
+
+    private void growSpare()
+    {
+        ByteBuffer spare = empty.peek();
+        if(spare != null && spare.capacity() < bufferSize && empty.remove(spare))
+            empty.add(ByteBuffer.allocate(bufferSize));
+    }
+
+    static void putVarint(ByteBuffer buffer, long value)
+    {
+        while((value & ~0x7FL) != 0L)
+        {
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    static long getVarint(ByteBuffer buffer)
+    {
+        long value = 0L;
+        for(int shift = 0; shift < 64; shift += 7)
+        {
+            byte b = buffer.get();
+            value |= (long)(b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+}
@@ -0,0 +1,254 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A session written by SessionRecorder, read back in. The header, the
+ * final score and the keyframe index are read up front; the events are
+ * walked one at a time with next(), which fills in the event fields.
+ *
+ * Nothing is read until it's needed, so a mapped file only pages in the
+ * parts a seek actually touches.
+ */
+public class SessionReplay
+{
+    public static final int DOWN = SessionRecorder.DOWN;
+    public static final int DRAG = SessionRecorder.DRAG;
+    public static final int CAP = SessionRecorder.CAP;
+    public static final int WORLD = SessionRecorder.WORLD;
+
+    public final int mode;
+    public final long seed;
+    public final EngineConfig config;
+
+    public final long endTick;
+    public final int hits;
+    public final int missed;
+    public final float gameTime;
+    public final int keyframeCount;
+
+    public long eventTick;
+    public int eventType;
+    public int eventPointer;
+    public int eventX;
+    public int eventY;
+    public int eventCap;
+    public float eventWorldWidth;
+    public float eventWorldHeight;
+
+    private final ByteBuffer data;
+    private final int eventsStart;
+    private final int indexOffset;
+
+    public SessionReplay(ByteBuffer data) throws IOException
+    {
+        this.data = data;
+
+        try
+        {
+            if(data.getInt() != SessionRecorder.MAGIC)
+                throw new IOException("Not a replay");
+            int version = data.get();
+            if(version != SessionRecorder.VERSION)
+                throw new IOException("Unknown replay version " + version);
+
+            mode = data.get();
+            seed = data.getLong();
+
+            GameEngine.Rules[] rules = GameEngine.Rules.values();
+            int rule = data.get();
+            if(rule < 0 || rule >= rules.length)
+                throw new IOException("Unknown rules " + rule);
+
+            config = new EngineConfig(rules[rule], data.getFloat(), data.getFloat());
+            config.spawnBottom = data.getFloat();
+            config.minimumSpawnTime = data.getFloat();
+            config.maximumSpawnTime = data.getFloat();
+            config.minimumLifeTime = data.getFloat();
+            config.maximumLifeTime = data.getFloat();
+            config.minimumSpawnCount = data.getInt();
+            config.maximumSpawnCount = data.getInt();
+            config.minimumRadius = data.getFloat();
+            config.maximumRadius = data.getFloat();
+            config.spawnCandidates = data.getInt();
+            config.spawnAttempts = data.getInt();
+            config.timeLimit = data.getFloat();
+            config.step = data.getFloat();
+
+            eventsStart = data.position();
+
+            int trailer = data.limit() - SessionRecorder.TRAILER_SIZE;
+            if(trailer < eventsStart || data.getInt(trailer + 12) != SessionRecorder.MAGIC)
+                throw new IOException("Replay is truncated");
+
+            int endOffset = data.getInt(trailer);
+            indexOffset = data.getInt(trailer + 4);
+            keyframeCount = data.getInt(trailer + 8);
+            if(endOffset < eventsStart || indexOffset < endOffset
+                    || indexOffset + keyframeCount * SessionRecorder.INDEX_ENTRY_SIZE != trailer)
+                throw new IOException("Replay is corrupt: bad trailer");
+
+            data.position(endOffset);
+            SessionRecorder.getVarint(data);
+            endTick = SessionRecorder.getVarint(data);
+            hits = (int)SessionRecorder.getVarint(data);
+            missed = (int)SessionRecorder.getVarint(data);
+            gameTime = data.getFloat();
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IOException("Replay is truncated");
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("Replay is corrupt: " + e.getMessage());
+        }
+
+        rewind();
+    }
+
+    /** Maps the file in, the channel can be closed afterwards. */
+    public static SessionReplay map(FileChannel channel) throws IOException
+    {
+        return new SessionReplay(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+    }
+
+    /** Reads the whole channel in and closes it. */
+    public static SessionReplay read(ReadableByteChannel channel) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.allocate(4096);
+        try
+        {
+            while(channel.read(data) >= 0)
+            {
+                if(!data.hasRemaining())
+                {
+                    ByteBuffer bigger = ByteBuffer.allocate(data.capacity() * 2);
+                    data.flip();
+                    bigger.put(data);
+                    data = bigger;
+                }
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        data.flip();
+        return new SessionReplay(data);
+    }
+
+    /** Goes back to before the first event. */
+    public void rewind()
+    {
+        data.position(eventsStart);
+        eventTick = 0L;
+    }
+
+    public long getKeyframeTick(int keyframe)
+    {
+        return data.getLong(indexOffset + keyframe * SessionRecorder.INDEX_ENTRY_SIZE);
+    }
+
+    /** The last keyframe at or before the given tick, or -1 if there's none. */
+    public int findKeyframe(long tick)
+    {
+        int low = 0;
+        int high = keyframeCount - 1;
+        int found = -1;
+        while(low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if(getKeyframeTick(middle) <= tick)
+            {
+                found = middle;
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Puts the engine in the state it was in at the keyframe, and moves on
+     * to the event after it.
+     */
+    public void loadKeyframe(int keyframe, GameEngine engine)
+    {
+        long tick = getKeyframeTick(keyframe);
+        data.position(data.getInt(indexOffset + keyframe * SessionRecorder.INDEX_ENTRY_SIZE + 8));
+
+        long header = SessionRecorder.getVarint(data);
+        if((header & ((1 << SessionRecorder.TYPE_BITS) - 1)) != SessionRecorder.KEY)
+            throw new IllegalArgumentException("Keyframe " + keyframe + " isn't one");
+
+        data.getInt();
+        engine.loadState(data, tick);
+        eventTick = tick;
+    }
+
+    /**
+     * Moves on to the next event. Keyframes are skipped, they're only
+     * read by loadKeyframe().
+     *
+     * @return false once the END event is reached, its tick is in eventTick
+     */
+    public boolean next()
+    {
+        while(true)
+        {
+            long header = SessionRecorder.getVarint(data);
+            eventType = (int)(header & ((1 << SessionRecorder.TYPE_BITS) - 1));
+            eventTick += header >>> SessionRecorder.TYPE_BITS;
+
+            switch(eventType)
+            {
+                case SessionRecorder.DOWN:
+                case SessionRecorder.DRAG:
+                    eventPointer = (data.get() & 0xFF) - 1;
+                    eventX = data.getShort() & 0xFFFF;
+                    eventY = data.getShort() & 0xFFFF;
+                    return true;
+                case SessionRecorder.CAP:
+                    eventCap = (int)SessionRecorder.getVarint(data);
+                    return true;
+                case SessionRecorder.WORLD:
+                    eventWorldWidth = data.getFloat();
+                    eventWorldHeight = data.getFloat();
+                    return true;
+                case SessionRecorder.KEY:
+                    int length = data.getInt();
+                    data.position(data.position() + length);
+                    break;
+                case SessionRecorder.END:
+                    return false;
+                default:
+                    throw new IllegalArgumentException("unknown event " + eventType);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * A uniform grid over the world that buckets circles by the cells their
+ * bounding box touches. With cells as large as the biggest circle, a
+ * circle sits in at most four cells (nine while the cells are smaller),
+ * so overlap and point queries only look at a handful of neighbours no
+ * matter how many circles there are.
+ *
+ * Entries are the slot indices of a PokableStore, and the store tells
+ * the grid when it moves a pokable from one slot to another.
+ */
+public class SpatialGrid
+{
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+
+    private final int[][] cells;
+    private final int[] cellCounts;
+
+    // The cell range each slot is filed under, inclusive.
+    private int[] minColumn = new int[0];
+    private int[] minRow = new int[0];
+    private int[] maxColumn = new int[0];
+    private int[] maxRow = new int[0];
+
+    public SpatialGrid(float width, float height, float cellSize)
+    {
+        this.cellSize = cellSize;
+        this.columns = Math.max((int)Math.ceil(width / cellSize), 1);
+        this.rows = Math.max((int)Math.ceil(height / cellSize), 1);
+
+        cells = new int[columns * rows][];
+        cellCounts = new int[columns * rows];
+        for(int i = 0; i < cells.length; i++)
+            cells[i] = new int[INITIAL_CELL_CAPACITY];
+    }
+
+    private int column(float x)
+    {
+        int column = (int)(x / cellSize);
+        return column < 0 ? 0 : column >= columns ? columns - 1 : column;
+    }
+
+    private int row(float y)
+    {
+        int row = (int)(y / cellSize);
+        return row < 0 ? 0 : row >= rows ? rows - 1 : row;
+    }
+
+    public void insert(int slot, float x, float y, float radius)
+    {
+        ensureSlots(slot + 1);
+
+        minColumn[slot] = column(x - radius);
+        maxColumn[slot] = column(x + radius);
+        minRow[slot] = row(y - radius);
+        maxRow[slot] = row(y + radius);
+
+        for(int row = minRow[slot]; row <= maxRow[slot]; row++)
+            for(int column = minColumn[slot]; column <= maxColumn[slot]; column++)
+                addToCell(row * columns + column, slot);
+    }
+
+    /** Refiles a slot, but only if its circle now covers different cells. */
+    public void update(int slot, float x, float y, float radius)
+    {
+        if(isFiled(slot, x, y, radius))
+            return;
+
+        remove(slot);
+        insert(slot, x, y, radius);
+    }
+
+    /** True if the slot is filed under exactly the cells the circle covers. Only reads. */
+    public boolean isFiled(int slot, float x, float y, float radius)
+    {
+        return column(x - radius) == minColumn[slot] && column(x + radius) == maxColumn[slot]
+                && row(y - radius) == minRow[slot] && row(y + radius) == maxRow[slot];
+    }
+
+    public void remove(int slot)
+    {
+        for(int row = minRow[slot]; row <= maxRow[slot]; row++)
+            for(int column = minColumn[slot]; column <= maxColumn[slot]; column++)
+                removeFromCell(row * columns + column, slot);
+    }
+
+    /** Renames a slot, the old one has to be empty afterwards. */
+    public void move(int from, int to)
+    {
+        for(int row = minRow[from]; row <= maxRow[from]; row++)
+        {
+            for(int column = minColumn[from]; column <= maxColumn[from]; column++)
+            {
+                int cell = row * columns + column;
+                int[] entries = cells[cell];
+                for(int i = 0; i < cellCounts[cell]; i++)
+                {
+                    if(entries[i] == from)
+                    {
+                        entries[i] = to;
+                        break;
+                    }
+                }
+            }
+        }
+
+        minColumn[to] = minColumn[from];
+        maxColumn[to] = maxColumn[from];
+        minRow[to] = minRow[from];
+        maxRow[to] = maxRow[from];
+    }
+
+    public void clear()
+    {
+        for(int i = 0; i < cellCounts.length; i++)
+            cellCounts[i] = 0;
+    }
+
+    /**
+     * Calls the visitor for every slot filed in a cell that the given
+     * circle's bounding box touches, stopping early when it returns true.
+     * A slot can be visited more than once if it spans several cells.
+     *
+     * @return true if the visitor stopped the search
+     */
+    public boolean query(float x, float y, float radius, Visitor visitor)
+    {
+        int lastColumn = column(x + radius);
+        int lastRow = row(y + radius);
+
+        for(int row = row(y - radius); row <= lastRow; row++)
+        {
+            for(int column = column(x - radius); column <= lastColumn; column++)
+            {
+                int cell = row * columns + column;
+                int[] entries = cells[cell];
+                for(int i = 0; i < cellCounts[cell]; i++)
+                {
+                    if(visitor.visit(entries[i]))
+                        return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Copies the slots filed in the cell holding the given point into
+     * results. Each slot is in a cell at most once, so there are no repeats.
+     *
+     * @return the number of slots copied, or -1 if results is too small
+     */
+    public int queryPoint(float x, float y, int[] results)
+    {
+        int cell = row(y) * columns + column(x);
+        int count = cellCounts[cell];
+        if(count > results.length)
+            return -1;
+
+        System.arraycopy(cells[cell], 0, results, 0, count);
+        return count;
+    }
+
+    private void addToCell(int cell, int slot)
+    {
+        int count = cellCounts[cell];
+        int[] entries = cells[cell];
+        if(count == entries.length)
+        {
+            int[] newEntries = new int[entries.length * 2];
+            System.arraycopy(entries, 0, newEntries, 0, count);
+            cells[cell] = entries = newEntries;
+        }
+        entries[count] = slot;
+        cellCounts[cell] = count + 1;
+    }
+
+    private void removeFromCell(int cell, int slot)
+    {
+        int count = cellCounts[cell];
+        int[] entries = cells[cell];
+        for(int i = 0; i < count; i++)
+        {
+            if(entries[i] == slot)
+            {
+                entries[i] = entries[count - 1];
+                cellCounts[cell] = count - 1;
+                return;
+            }
+        }
+    }
+
+    private void ensureSlots(int slots)
+    {
+        if(slots <= minColumn.length)
+            return;
+
+        int capacity = Math.max(slots, minColumn.length * 2);
+        minColumn = grow(minColumn, capacity);
+        minRow = grow(minRow, capacity);
+        maxColumn = grow(maxColumn, capacity);
+        maxRow = grow(maxRow, capacity);
+    }
+
+    private static int[] grow(int[] array, int capacity)
+    {
+        int[] newArray = new int[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    public interface Visitor
+    {
+        boolean visit(int slot);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded ring of touch events from one producer, the input thread, to
+ * one consumer, the simulation. Neither side locks: each only writes its
+ * own counter, and publishes it with an ordered store once the slots it
+ * covers are written or read.
+ *
+ * Events carry the System.nanoTime() they happened at, so the engine can
+ * apply each one in the step it belongs to however late it gets drained.
+ */
+public class TouchQueue
+{
+    public static final byte DOWN = 0;
+    public static final byte DRAG = 1;
+
+    private final int mask;
+    private final byte[] types;
+    private final int[] pointers;
+    private final float[] xs;
+    private final float[] ys;
+    private final long[] times;
+
+    // Next slot to read, and next slot to write.
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Events thrown away because the queue was full. Written by the producer. */
+    public volatile int overflows = 0;
+
+    // The event taken by the last poll().
+    public byte polledType;
+    public int polledPointer;
+    public float polledX;
+    public float polledY;
+    public long polledTime;
+
+    /** @param capacity rounded up to a power of two */
+    public TouchQueue(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mask = size - 1;
+        types = new byte[size];
+        pointers = new int[size];
+        xs = new float[size];
+        ys = new float[size];
+        times = new long[size];
+    }
+
+    /** Producer side. @return false if the queue was full and the event was dropped */
+    public boolean offer(byte type, int pointer, float x, float y, long time)
+    {
+        long t = tail.get();
+        if(t - head.get() > mask)
+        {
+            overflows++;
+            return false;
+        }
+
+        int i = (int)t & mask;
+        types[i] = type;
+        pointers[i] = pointer;
+        xs[i] = x;
+        ys[i] = y;
+        times[i] = time;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /** Consumer side. */
+    public boolean isEmpty()
+    {
+        return head.get() == tail.get();
+    }
+
+    /** Consumer side, the time of the oldest event. Only valid while not empty. */
+    public long peekTime()
+    {
+        return times[(int)head.get() & mask];
+    }
+
+    /** Consumer side, takes the oldest event into the polled fields. Only valid while not empty. */
+    public void poll()
+    {
+        long h = head.get();
+        int i = (int)h & mask;
+        polledType = types[i];
+        polledPointer = pointers[i];
+        polledX = xs[i];
+        polledY = ys[i];
+        polledTime = times[i];
+        head.lazySet(h + 1);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * One wave, ready to place: how long to wait before it, how many
+ * pokables it wants, and more candidates than that. The candidates never
+ * overlap each other, so placing the wave only has to check them against
+ * the pokables already on screen, in order, until enough have fit.
+ */
+public class Wave
+{
+    public int index;
+    public float delay;
+    public int count;
+
+    public final PokableSpawn[] candidates;
+    public int candidateCount;
+
+    public Wave(int capacity)
+    {
+        candidates = new PokableSpawn[capacity];
+        for(int i = 0; i < capacity; i++)
+            candidates[i] = new PokableSpawn();
+    }
+}
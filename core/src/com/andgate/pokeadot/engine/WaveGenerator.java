@@ -0,0 +1,141 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * Works out waves from the session seed. Candidates are placed by dart
+ * throwing against the candidates already in the wave, so every wave is
+ * a well spread set of circles. Each candidate gets a fixed number of
+ * throws, so a wave takes bounded time however crowded it is; a wave
+ * that couldn't get all its candidates just has fewer of them.
+ *
+ * Everything here depends only on the seed and the wave index, never on
+ * the game in progress, so waves can be made ahead of time on another
+ * thread and still come out the same.
+ */
+public class WaveGenerator implements WaveSource
+{
+    private final EngineConfig config;
+    private final WaveSchedule schedule;
+    private final SessionRandom random = new SessionRandom(0L);
+    private final SpatialGrid grid;
+
+    private Wave wave;
+    private int nextIndex = 0;
+
+    private Wave filling;
+    private float queryX;
+    private float queryY;
+    private float queryRadius;
+    private final SpatialGrid.Visitor overlapVisitor = new SpatialGrid.Visitor() {
+        @Override
+        public boolean visit(int slot) {
+            PokableSpawn other = filling.candidates[slot];
+            float dx = other.x - queryX;
+            float dy = other.y - queryY;
+            float radiusSum = other.radius + queryRadius;
+            return dx * dx + dy * dy < radiusSum * radiusSum;
+        }
+    };
+
+    public WaveGenerator(EngineConfig config, long seed)
+    {
+        // Our own copy, this may run on a thread of its own.
+        this.config = new EngineConfig(config);
+        schedule = new WaveSchedule(this.config, seed);
+        grid = new SpatialGrid(this.config.worldWidth, this.config.worldHeight, this.config.maximumRadius);
+    }
+
+    public Wave newWave()
+    {
+        return new Wave(config.maximumSpawnCount * config.spawnCandidates);
+    }
+
+    @Override
+    public Wave next()
+    {
+        if(wave == null)
+            wave = newWave();
+
+        generate(nextIndex++, wave);
+        return wave;
+    }
+
+    /** next() carries on from wave number index. */
+    public void seek(int index)
+    {
+        nextIndex = index;
+    }
+
+    @Override
+    public void recycle(Wave wave)
+    {
+    }
+
+    @Override
+    public void dispose()
+    {
+    }
+
+    /** Fills the given wave with wave number index. */
+    public void generate(int index, Wave wave)
+    {
+        filling = wave;
+
+        wave.index = index;
+        wave.delay = schedule.getDelay(index);
+        wave.count = schedule.getCount(index);
+        wave.candidateCount = 0;
+
+        random.setSeed(schedule.getPlacementSeed(index));
+        grid.clear();
+
+        int wanted = Math.min(wave.count * config.spawnCandidates, wave.candidates.length);
+        int throwsLeft = wanted * config.spawnAttempts;
+        while(wave.candidateCount < wanted && throwsLeft > 0)
+        {
+            PokableSpawn spawn = wave.candidates[wave.candidateCount];
+            rollPosition(spawn);
+
+            queryX = spawn.x;
+            queryY = spawn.y;
+            queryRadius = spawn.radius;
+            if(!grid.query(spawn.x, spawn.y, spawn.radius, overlapVisitor))
+            {
+                rollAppearance(spawn);
+                grid.insert(wave.candidateCount, spawn.x, spawn.y, spawn.radius);
+                wave.candidateCount++;
+            }
+
+            throwsLeft--;
+        }
+    }
+
+    private void rollPosition(PokableSpawn spawn)
+    {
+        spawn.radius = random.random(config.minimumRadius, config.maximumRadius);
+        spawn.x = random.random(0.0f + spawn.radius, config.worldWidth - spawn.radius);
+        spawn.y = random.random(config.spawnBottom + spawn.radius,
+                                config.worldHeight - spawn.radius);
+    }
+
+    private void rollAppearance(PokableSpawn spawn)
+    {
+        spawn.hue = random.random(0.0f, 1.0f);
+        spawn.lifeTime = random.random(config.minimumLifeTime, config.maximumLifeTime);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.engine;
+
+/**
+ * The waves of a session, worked out from its seed. Each wave has the
+ * wait before it, how many pokables it tries to place, and a seed for
+ * placing and coloring them. Every wave gets its own seed, so wave n is
+ * the same no matter what happened in the waves before it.
+ *
+ * Waves are computed ahead in blocks, so looking one up during play is
+ * an array read.
+ */
+public class WaveSchedule
+{
+    private static final int BLOCK_SIZE = 256;
+
+    private final EngineConfig config;
+    private final long seed;
+    private final SessionRandom random = new SessionRandom(0L);
+
+    private int computed = 0;
+    private float[] delays = new float[0];
+    private int[] counts = new int[0];
+    private long[] placementSeeds = new long[0];
+
+    public WaveSchedule(EngineConfig config, long seed)
+    {
+        this.config = config;
+        this.seed = seed;
+        computeUpTo(BLOCK_SIZE);
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    public float getDelay(int wave)
+    {
+        computeUpTo(wave + 1);
+        return delays[wave];
+    }
+
+    public int getCount(int wave)
+    {
+        computeUpTo(wave + 1);
+        return counts[wave];
+    }
+
+    public long getPlacementSeed(int wave)
+    {
+        computeUpTo(wave + 1);
+        return placementSeeds[wave];
+    }
+
+    private void computeUpTo(int waves)
+    {
+        if(waves <= computed)
+            return;
+
+        int capacity = Math.max(waves, computed + BLOCK_SIZE);
+        delays = grow(delays, capacity);
+        counts = grow(counts, capacity);
+        placementSeeds = grow(placementSeeds, capacity);
+
+        for(int wave = computed; wave < capacity; wave++)
+        {
+            random.setSeed(SessionRandom.mix(seed + wave));
+            delays[wave] = random.random(config.minimumSpawnTime, config.maximumSpawnTime);
+            counts[wave] = random.random(config.minimumSpawnCount, config.maximumSpawnCount);
+            placementSeeds[wave] = random.nextLong();
+        }
+
+        computed = capacity;
+    }
+
+    private static float[] grow(float[] array, int capacity)
+    {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static int[] grow(int[] array, int capacity)
+    {
+        int[] newArray = new int[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static long[] grow(long[] array, int capacity)
+    {
+        long[] newArray = new long[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+}
@@ -57,6 +57,18 @@ public class HSL
      * @return The RGB representation
      */
     public Color toRGB()
+    {
+        return toRGB(new Color());
+    }
+
+    /**
+     * Same as toRGB(), but writes into the given color instead of
+     * allocating one.
+     *
+     * @param rgb the color to write to
+     * @return rgb
+     */
+    public Color toRGB(Color rgb)
     {
         float r, g, b;
 
@@ -75,7 +87,7 @@ public class HSL
             b = hue2rgb(p, q, h - 1.0f / 3.0f);
         }
 
-        return new Color(r, g, b, 1.0f);
+        return rgb.set(r, g, b, 1.0f);
     }
 
     private static float hue2rgb(float p, float q, float t)
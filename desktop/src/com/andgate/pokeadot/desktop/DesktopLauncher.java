@@ -1,5 +1,6 @@
 package com.andgate.pokeadot.desktop;
 
+import com.andgate.pokeadot.FramePacer;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.andgate.pokeadot.PokeADot;
@@ -7,12 +8,37 @@ import com.andgate.pokeadot.PokeADot;
 public class DesktopLauncher {
     private static final boolean IS_FREE = false;
 
+    // Pacing options:
+    //   --vsync         wait for the display (default)
+    //   --fps=<rate>    hold a fixed frame rate without vsync
+    //   --uncapped      render as fast as possible
+    //   --log-pacing    print frame time and jitter every few seconds
 	public static void main (String[] arg) {
+        FramePacer.Mode mode = FramePacer.Mode.VSYNC;
+        int targetFps = 0;
+        boolean logPacing = false;
+
+        for (String option : arg) {
+            if (option.equals("--vsync")) {
+                mode = FramePacer.Mode.VSYNC;
+            } else if (option.startsWith("--fps=")) {
+                mode = FramePacer.Mode.TARGET;
+                targetFps = Integer.parseInt(option.substring("--fps=".length()));
+            } else if (option.equals("--uncapped")) {
+                mode = FramePacer.Mode.UNCAPPED;
+            } else if (option.equals("--log-pacing")) {
+                logPacing = true;
+            }
+        }
+
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
-        config.samples=16;
         //config.useGL30=true;
         config.resizable=false;
-        config.vSyncEnabled=true;
-		new LwjglApplication(new PokeADot(IS_FREE), config);
+        config.vSyncEnabled = mode == FramePacer.Mode.VSYNC;
+        if (mode != FramePacer.Mode.VSYNC) {
+            // The backend's own Display.sync cap would fight the pacer.
+            config.foregroundFPS = 0;
+        }
+		new LwjglApplication(new PokeADot(IS_FREE, new FramePacer(mode, targetFps, logPacing)), config);
 	}
 }
@@ -0,0 +1,152 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Every player's best time on one board, ranked. Lookups only take the
+ * read lock, so any number of them run at once; a submission holds the
+ * write lock for one remove and one insert.
+ */
+public class Leaderboard
+{
+    public final String name;
+
+    private final RankedIndex index = new RankedIndex();
+    private final Map<String, Score> best = new HashMap<String, Score>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Where a player or a time stands, and out of how many. */
+    public static class Standing
+    {
+        public final Score score;
+        public final int rank;
+        public final int of;
+
+        Standing(Score score, int rank, int of)
+        {
+            this.score = score;
+            this.rank = rank;
+            this.of = of;
+        }
+    }
+
+    public Leaderboard(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Keeps the score if it's the player's best so far.
+     *
+     * @return true if it replaced their old one, or they had none
+     */
+    public boolean submit(Score score)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Score old = best.get(score.player);
+            if(old != null && !score.isAbove(old))
+                return false;
+
+            if(old != null)
+                index.remove(old);
+            index.insert(score);
+            best.put(score.player, score);
+            return true;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The player's best and its rank, or null if they have none here. */
+    public Standing getStanding(String player)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Score score = best.get(player);
+            if(score == null)
+                return null;
+            return new Standing(score, index.rankOf(score), index.size());
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The rank a new score with this time would get, ties go to the old ones. */
+    public Standing getStanding(float time)
+    {
+        lock.readLock().lock();
+        try
+        {
+            return new Standing(null, index.countAtLeast(time) + 1, index.size());
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Score> getTop(int count)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Score[] scores = new Score[Math.min(count, index.size())];
+            int found = index.get(1, scores);
+
+            List<Score> top = new ArrayList<Score>(found);
+            for(int i = 0; i < found; i++)
+                top.add(scores[i]);
+            return top;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return index.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Every best on the board, for compaction. */
+    public List<Score> getAll()
+    {
+        return getTop(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,495 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.server;
+
+import com.andgate.pokeadot.engine.GameMode;
+import com.andgate.pokeadot.engine.SessionRandom;
+import com.andgate.pokeadot.verifier.SubmissionRules;
+import com.andgate.pokeadot.verifier.Verification;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * The leaderboard over HTTP. Scores only get in as replays, which are
+ * verified the same way the verifier module does before they're ranked.
+ * Every request gets a thread of its own, a virtual one where the JVM
+ * has them.
+ *
+ *   POST /scores?player=NAME   body is a replay; PLAY sessions go on
+ *                              the "play" board, DAILY ones on
+ *                              "daily-SEED" if SEED is the day's
+ *   GET  /rank/BOARD?player=NAME   the player's best and its rank
+ *   GET  /rank/BOARD?time=T        the rank a time would get
+ *   GET  /top/BOARD?n=N            the N best, at most 100
+ *
+ * Options: --port=N (default 8080), --data=DIR (default "leaderboard"),
+ * --no-sync to skip forcing each score to disk.
+ */
+public class LeaderboardServer
+{
+    private static final int MAXIMUM_TOP = 100;
+    private static final int MAXIMUM_BODY = 1024 * 1024;
+    private static final int BACKLOG = 1024;
+    private static final long COMPACTION_CHECK_SECONDS = 30L;
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+    private static final Pattern PLAYER = Pattern.compile("[A-Za-z0-9_.-]{1,24}");
+    private static final Pattern BOARD = Pattern.compile("[a-z0-9-]{1,40}");
+
+    private final Map<String, Leaderboard> boards = new ConcurrentHashMap<String, Leaderboard>();
+    private final ScoreLog log;
+    private final AtomicLong sequence = new AtomicLong();
+    private final SubmissionRules rules = new SubmissionRules();
+
+    private HttpServer http;
+    private ExecutorService requests;
+    private ScheduledExecutorService compactor;
+
+    public LeaderboardServer(File directory, boolean sync)
+    {
+        log = new ScoreLog(directory, sync);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = 8080;
+        File directory = new File("leaderboard");
+        boolean sync = true;
+
+        for(String option : args)
+        {
+            if(option.startsWith("--port="))
+                port = Integer.parseInt(value(option));
+            else if(option.startsWith("--data="))
+                directory = new File(value(option));
+            else if(option.equals("--no-sync"))
+                sync = false;
+            else
+                throw new IllegalArgumentException("Unknown option: " + option);
+        }
+
+        directory.mkdirs();
+        LeaderboardServer server = new LeaderboardServer(directory, sync);
+        server.start(port);
+        System.out.println("Leaderboard on port " + server.getPort() + ", "
+                + server.boards.size() + " boards loaded from " + directory);
+    }
+
+    private static String value(String option)
+    {
+        return option.substring(option.indexOf('=') + 1);
+    }
+
+    /**
+     * A thread per task, virtual where the JVM has them. Looked up rather
+     * than called so the module still builds and runs on older JVMs.
+     */
+    public static ExecutorService newPerTaskExecutor(final String name)
+    {
+        try
+        {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool(new ThreadFactory()
+            {
+                private int count = 0;
+
+                @Override
+                public synchronized Thread newThread(Runnable task)
+                {
+                    Thread thread = new Thread(task, name + "-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /** Loads the log and starts listening, port 0 picks a free one. */
+    public void start(int port) throws IOException
+    {
+        sequence.set(log.load(boards));
+
+        // Headers and body go out in separate writes, so with Nagle on every
+        // response waits out the client's delayed ack, about 40ms. Only read
+        // once, when the first server is made.
+        if(System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        requests = newPerTaskExecutor("request");
+        http = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        http.setExecutor(requests);
+        http.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                try
+                {
+                    route(exchange);
+                }
+                catch (RuntimeException e)
+                {
+                    System.err.println("Failed on " + exchange.getRequestURI() + ": " + e);
+                    // Once the headers are out there's no changing the status.
+                    if(exchange.getResponseCode() == -1)
+                        respond(exchange, 500, error(e.toString()));
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        });
+        http.start();
+
+        compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "compactor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        compactor.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                compactIfNeeded();
+            }
+        }, COMPACTION_CHECK_SECONDS, COMPACTION_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public int getPort()
+    {
+        return http.getAddress().getPort();
+    }
+
+    public void stop() throws IOException
+    {
+        http.stop(0);
+        requests.shutdown();
+        compactor.shutdownNow();
+        log.close();
+    }
+
+    /** Rewrites the log once it's mostly beaten scores. */
+    public void compactIfNeeded()
+    {
+        int live = 0;
+        for(Leaderboard board : boards.values())
+            live += board.size();
+
+        try
+        {
+            if(log.needsCompaction(live))
+                log.compact(boards.values());
+        }
+        catch (IOException e)
+        {
+            System.err.println("Compaction failed: " + e);
+        }
+    }
+
+    /**
+     * Puts a score on a board if it's the player's best, logging it first.
+     * Nothing checks the score, that's for callers to have done.
+     */
+    public Leaderboard.Standing record(String boardName, String player, float time) throws IOException
+    {
+        Score score = new Score(player, time, sequence.incrementAndGet(), System.currentTimeMillis());
+
+        // Logging and ranking go together, see ScoreLog.compact().
+        synchronized(log)
+        {
+            Leaderboard board = boards.get(boardName);
+            if(board == null)
+            {
+                board = new Leaderboard(boardName);
+                boards.put(boardName, board);
+            }
+
+            Leaderboard.Standing standing = board.getStanding(player);
+            if(standing == null || score.isAbove(standing.score))
+            {
+                log.append(boardName, score);
+                board.submit(score);
+            }
+            return board.getStanding(player);
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException
+    {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if(path.equals("/scores") && method.equals("POST"))
+            submit(exchange, query);
+        else if(path.startsWith("/rank/") && method.equals("GET"))
+            rank(exchange, path.substring("/rank/".length()), query);
+        else if(path.startsWith("/top/") && method.equals("GET"))
+            top(exchange, path.substring("/top/".length()), query);
+        else
+            respond(exchange, 404, error("no such endpoint"));
+    }
+
+    private void submit(HttpExchange exchange, Map<String, String> query) throws IOException
+    {
+        String player = query.get("player");
+        if(player == null || !PLAYER.matcher(player).matches())
+        {
+            respond(exchange, 400, error("bad player name"));
+            return;
+        }
+
+        byte[] body = readBody(exchange.getRequestBody());
+        if(body == null)
+        {
+            respond(exchange, 413, error("replay too big"));
+            return;
+        }
+
+        Verification verification = new Verification(player, ByteBuffer.wrap(body), rules);
+        verification.check();
+        if(!verification.accepted)
+        {
+            respond(exchange, 422, "{\"accepted\":false,\"reason\":" + quote(verification.reason) + "}");
+            return;
+        }
+
+        boolean daily = verification.mode == GameMode.DAILY.ordinal();
+        if(daily && !isDailySeed(verification.seed, System.currentTimeMillis()))
+        {
+            respond(exchange, 422, "{\"accepted\":false,\"reason\":\"not a daily seed from around today\"}");
+            return;
+        }
+
+        String board = daily
+                ? "daily-" + Long.toHexString(verification.seed)
+                : "play";
+        Leaderboard.Standing standing = record(board, player, verification.gameTime);
+
+        respond(exchange, 200, "{\"accepted\":true,\"board\":" + quote(board)
+                + ",\"time\":" + verification.gameTime
+                + ",\"best\":" + standing.score.time
+                + ",\"rank\":" + standing.rank
+                + ",\"of\":" + standing.of + "}");
+    }
+
+    /**
+     * Whether the seed is the daily one for the UTC day of now, or the day
+     * either side of it, for clocks that are off and games that run past
+     * midnight. Anything else would be a board of the player's own making.
+     */
+    public static boolean isDailySeed(long seed, long now)
+    {
+        for(int day = -1; day <= 1; day++)
+        {
+            if(seed == SessionRandom.dailySeed(now + day * MILLIS_PER_DAY))
+                return true;
+        }
+        return false;
+    }
+
+    private void rank(HttpExchange exchange, String boardName, Map<String, String> query) throws IOException
+    {
+        Leaderboard board = findBoard(exchange, boardName);
+        if(board == null)
+            return;
+
+        String player = query.get("player");
+        String time = query.get("time");
+        if(player != null)
+        {
+            Leaderboard.Standing standing = board.getStanding(player);
+            if(standing == null)
+            {
+                respond(exchange, 404, error("no score for " + player));
+                return;
+            }
+            respond(exchange, 200, "{\"board\":" + quote(board.name)
+                    + ",\"player\":" + quote(player)
+                    + ",\"time\":" + standing.score.time
+                    + ",\"rank\":" + standing.rank
+                    + ",\"of\":" + standing.of + "}");
+        }
+        else if(time != null)
+        {
+            float seconds;
+            try
+            {
+                seconds = Float.parseFloat(time);
+            }
+            catch (NumberFormatException e)
+            {
+                respond(exchange, 400, error("bad time"));
+                return;
+            }
+            // parseFloat takes "NaN" and "Infinity" too, which don't rank.
+            if(Float.isNaN(seconds) || Float.isInfinite(seconds) || seconds < 0.0f)
+            {
+                respond(exchange, 400, error("bad time"));
+                return;
+            }
+            Leaderboard.Standing standing = board.getStanding(seconds);
+            respond(exchange, 200, "{\"board\":" + quote(board.name)
+                    + ",\"time\":" + seconds
+                    + ",\"rank\":" + standing.rank
+                    + ",\"of\":" + standing.of + "}");
+        }
+        else
+        {
+            respond(exchange, 400, error("rank needs a player or a time"));
+        }
+    }
+
+    private void top(HttpExchange exchange, String boardName, Map<String, String> query) throws IOException
+    {
+        Leaderboard board = findBoard(exchange, boardName);
+        if(board == null)
+            return;
+
+        int count = 10;
+        if(query.containsKey("n"))
+        {
+            try
+            {
+                count = Math.max(1, Math.min(MAXIMUM_TOP, Integer.parseInt(query.get("n"))));
+            }
+            catch (NumberFormatException e)
+            {
+                respond(exchange, 400, error("bad n"));
+                return;
+            }
+        }
+
+        List<Score> scores = board.getTop(count);
+        StringBuilder json = new StringBuilder(64 + scores.size() * 48);
+        json.append("{\"board\":").append(quote(board.name))
+            .append(",\"of\":").append(board.size())
+            .append(",\"scores\":[");
+        for(int i = 0; i < scores.size(); i++)
+        {
+            Score score = scores.get(i);
+            if(i > 0)
+                json.append(',');
+            json.append("{\"rank\":").append(i + 1)
+                .append(",\"player\":").append(quote(score.player))
+                .append(",\"time\":").append(score.time).append('}');
+        }
+        json.append("]}");
+        respond(exchange, 200, json.toString());
+    }
+
+    private Leaderboard findBoard(HttpExchange exchange, String name) throws IOException
+    {
+        Leaderboard board = BOARD.matcher(name).matches() ? boards.get(name) : null;
+        if(board == null)
+            respond(exchange, 404, error("no board " + name));
+        return board;
+    }
+
+    /** @return the body, or null if it's over MAXIMUM_BODY */
+    private static byte[] readBody(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+        byte[] chunk = new byte[4096];
+        int read;
+        while((read = in.read(chunk)) >= 0)
+        {
+            body.write(chunk, 0, read);
+            if(body.size() > MAXIMUM_BODY)
+                return null;
+        }
+        return body.toByteArray();
+    }
+
+    private static Map<String, String> parseQuery(String raw) throws IOException
+    {
+        Map<String, String> query = new HashMap<String, String>();
+        if(raw == null)
+            return query;
+
+        for(String pair : raw.split("&"))
+        {
+            int equals = pair.indexOf('=');
+            if(equals > 0)
+                query.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                          URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException
+    {
+        byte[] bytes = json.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static String error(String message)
+    {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String text)
+    {
+        StringBuilder quoted = new StringBuilder(text.length() + 2);
+        quoted.append('"');
+        for(int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(c == '"' || c == '\\')
+                quoted.append('\\').append(c);
+            else if(c < 0x20)
+                quoted.append(String.format("\\u%04x", (int)c));
+            else
+                quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+}
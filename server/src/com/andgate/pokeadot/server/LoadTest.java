@@ -0,0 +1,276 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hammers a leaderboard on localhost and reports throughput and latency.
+ * Without --port it starts its own server in a temporary directory and
+ * fills the "play" board first.
+ *
+ *   --port=N        test a server that's already running
+ *   --entries=N     scores to fill our own server with (default 100000)
+ *   --clients=N     concurrent clients (default 64)
+ *   --duration=S    seconds to run for (default 10)
+ *   --replays=DIR   also POST the replays in DIR, one in every 20 requests
+ */
+public class LoadTest
+{
+    private static final String BOARD = "play";
+    private static final int SUBMIT_EVERY = 20;
+
+    private final String base;
+    private final List<byte[]> replays;
+    private final int players;
+    private final long endNanos;
+
+    private final AtomicInteger errors = new AtomicInteger();
+
+    private LoadTest(int port, List<byte[]> replays, int players, long endNanos)
+    {
+        this.base = "http://127.0.0.1:" + port;
+        this.replays = replays;
+        this.players = players;
+        this.endNanos = endNanos;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int port = -1;
+        int entries = 100000;
+        int clients = 64;
+        int duration = 10;
+        File replayDirectory = null;
+
+        for(String option : args)
+        {
+            String value = option.substring(option.indexOf('=') + 1);
+            if(option.startsWith("--port="))
+                port = Integer.parseInt(value);
+            else if(option.startsWith("--entries="))
+                entries = Integer.parseInt(value);
+            else if(option.startsWith("--clients="))
+                clients = Integer.parseInt(value);
+            else if(option.startsWith("--duration="))
+                duration = Integer.parseInt(value);
+            else if(option.startsWith("--replays="))
+                replayDirectory = new File(value);
+            else
+                throw new IllegalArgumentException("Unknown option: " + option);
+        }
+
+        // Keep-alive connections, one per client.
+        System.setProperty("http.maxConnections", Integer.toString(clients));
+
+        LeaderboardServer server = null;
+        File directory = null;
+        if(port < 0)
+        {
+            directory = File.createTempFile("leaderboard", "");
+            directory.delete();
+            directory.mkdirs();
+
+            server = new LeaderboardServer(directory, false);
+            server.start(0);
+            port = server.getPort();
+
+            long start = System.nanoTime();
+            Random random = new Random(1);
+            for(int i = 0; i < entries; i++)
+                server.record(BOARD, "player" + i, 5.0f + random.nextFloat() * 120.0f);
+            System.out.println(String.format(Locale.US, "Filled %d scores in %.2fs",
+                    entries, (System.nanoTime() - start) / 1e9));
+        }
+
+        List<byte[]> replays = new ArrayList<byte[]>();
+        if(replayDirectory != null)
+        {
+            File[] files = replayDirectory.listFiles();
+            if(files != null)
+                for(File file : files)
+                    if(file.isFile())
+                        replays.add(readFully(new FileInputStream(file)));
+        }
+
+        long durationNanos = TimeUnit.SECONDS.toNanos(duration);
+        LoadTest test = new LoadTest(port, replays, Math.max(1, entries), System.nanoTime() + durationNanos);
+
+        final List<long[]> latencies = new ArrayList<long[]>();
+        final int[] counts = new int[clients];
+        ExecutorService executor = LeaderboardServer.newPerTaskExecutor("client");
+        for(int i = 0; i < clients; i++)
+        {
+            final long[] samples = new long[1 << 16];
+            latencies.add(samples);
+            final int client = i;
+            final LoadTest running = test;
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    counts[client] = running.runClient(client, samples);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(duration + 60L, TimeUnit.SECONDS);
+
+        test.report(latencies, counts, durationNanos);
+
+        if(server != null)
+        {
+            server.stop();
+            for(File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+    }
+
+    /** @return how many requests it made; the first samples.length of them are timed */
+    private int runClient(int client, long[] samples)
+    {
+        Random random = new Random(client);
+        int count = 0;
+        while(System.nanoTime() < endNanos)
+        {
+            String path;
+            byte[] body = null;
+            int pick = random.nextInt(SUBMIT_EVERY);
+            if(pick == 0 && !replays.isEmpty())
+            {
+                path = "/scores?player=load" + client;
+                body = replays.get(random.nextInt(replays.size()));
+            }
+            else if(pick < 9)
+                path = "/rank/" + BOARD + "?time=" + (5.0f + random.nextFloat() * 120.0f);
+            else if(pick < 17)
+                path = "/rank/" + BOARD + "?player=player" + random.nextInt(players);
+            else
+                path = "/top/" + BOARD + "?n=10";
+
+            long start = System.nanoTime();
+            if(!request(path, body))
+                errors.incrementAndGet();
+            if(count < samples.length)
+                samples[count] = System.nanoTime() - start;
+            count++;
+        }
+        return count;
+    }
+
+    private boolean request(String path, byte[] body)
+    {
+        HttpURLConnection connection = null;
+        try
+        {
+            connection = (HttpURLConnection)new URL(base + path).openConnection();
+            if(body != null)
+            {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                OutputStream out = connection.getOutputStream();
+                out.write(body);
+                out.close();
+            }
+
+            int status = connection.getResponseCode();
+            // Reading to the end lets the connection be reused.
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if(in != null)
+                readFully(in);
+            // A replay the server turns down is still an answer.
+            return status == 200 || (status == 422 && body != null) || (status == 404 && body == null);
+        }
+        catch (IOException e)
+        {
+            if(connection != null)
+                connection.disconnect();
+            return false;
+        }
+    }
+
+    private void report(List<long[]> latencies, int[] counts, long durationNanos)
+    {
+        int total = 0;
+        int timed = 0;
+        for(int i = 0; i < counts.length; i++)
+        {
+            total += counts[i];
+            timed += Math.min(counts[i], latencies.get(i).length);
+        }
+
+        long[] all = new long[timed];
+        int at = 0;
+        for(int i = 0; i < counts.length; i++)
+        {
+            int n = Math.min(counts[i], latencies.get(i).length);
+            System.arraycopy(latencies.get(i), 0, all, at, n);
+            at += n;
+        }
+        Arrays.sort(all);
+
+        System.out.println(String.format(Locale.US,
+                "%d requests from %d clients, %.0f/s, %d errors",
+                total, counts.length, total / (durationNanos / 1e9), errors.get()));
+        if(all.length > 0)
+            System.out.println(String.format(Locale.US,
+                    "latency p50 %.2fms, p90 %.2fms, p99 %.2fms, max %.2fms",
+                    percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99),
+                    all[all.length - 1] / 1e6));
+    }
+
+    private static double percentile(long[] sorted, double fraction)
+    {
+        int index = (int)Math.min(sorted.length - 1, Math.floor(sorted.length * fraction));
+        return sorted[index] / 1e6;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            byte[] chunk = new byte[4096];
+            int read;
+            while((read = in.read(chunk)) >= 0)
+                bytes.write(chunk, 0, read);
+            return bytes.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
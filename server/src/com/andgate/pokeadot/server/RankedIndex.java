@@ -0,0 +1,210 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.server;
+
+/**
+ * Scores in rank order, as an indexable skip list: every link knows how
+ * many scores it steps over, so finding a rank, the score at a rank, or
+ * where a time would place all take O(log n), same as insert and remove.
+ *
+ * Not thread safe, Leaderboard guards it.
+ */
+public class RankedIndex
+{
+    private static final int MAXIMUM_LEVEL = 32;
+
+    private static class Node
+    {
+        final Score score;
+        final Node[] next;
+        // How many level 0 steps each link covers, its target included.
+        final int[] width;
+
+        Node(Score score, int level)
+        {
+            this.score = score;
+            next = new Node[level];
+            width = new int[level];
+        }
+    }
+
+    private final Node head = new Node(null, MAXIMUM_LEVEL);
+    private int level = 1;
+    private int size = 0;
+    private long randomState = 0x9E3779B97F4A7C15L;
+
+    // Scratch for insert and remove.
+    private final Node[] update = new Node[MAXIMUM_LEVEL];
+    private final int[] updateRank = new int[MAXIMUM_LEVEL];
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void insert(Score score)
+    {
+        Node node = head;
+        for(int i = level - 1; i >= 0; i--)
+        {
+            updateRank[i] = i == level - 1 ? 0 : updateRank[i + 1];
+            while(node.next[i] != null && node.next[i].score.isAbove(score))
+            {
+                updateRank[i] += node.width[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        int newLevel = randomLevel();
+        if(newLevel > level)
+        {
+            for(int i = level; i < newLevel; i++)
+            {
+                updateRank[i] = 0;
+                update[i] = head;
+                head.width[i] = size;
+            }
+            level = newLevel;
+        }
+
+        Node inserted = new Node(score, newLevel);
+        for(int i = 0; i < newLevel; i++)
+        {
+            inserted.next[i] = update[i].next[i];
+            update[i].next[i] = inserted;
+
+            int stepsBefore = updateRank[0] - updateRank[i];
+            inserted.width[i] = update[i].width[i] - stepsBefore;
+            update[i].width[i] = stepsBefore + 1;
+        }
+        for(int i = newLevel; i < level; i++)
+            update[i].width[i]++;
+
+        size++;
+    }
+
+    /** Removes this exact score, it has to be in the index. */
+    public void remove(Score score)
+    {
+        Node node = head;
+        for(int i = level - 1; i >= 0; i--)
+        {
+            while(node.next[i] != null && node.next[i].score.isAbove(score))
+                node = node.next[i];
+            update[i] = node;
+        }
+
+        Node removed = node.next[0];
+        if(removed == null || removed.score != score)
+            throw new IllegalArgumentException("Score isn't in the index");
+
+        for(int i = 0; i < level; i++)
+        {
+            if(update[i].next[i] == removed)
+            {
+                update[i].width[i] += removed.width[i] - 1;
+                update[i].next[i] = removed.next[i];
+            }
+            else
+            {
+                update[i].width[i]--;
+            }
+        }
+        while(level > 1 && head.next[level - 1] == null)
+            level--;
+
+        size--;
+    }
+
+    /** The rank of a score in the index, 1 for the best. */
+    public int rankOf(Score score)
+    {
+        Node node = head;
+        int rank = 0;
+        for(int i = level - 1; i >= 0; i--)
+        {
+            while(node.next[i] != null
+                    && (node.next[i].score == score || node.next[i].score.isAbove(score)))
+            {
+                rank += node.width[i];
+                node = node.next[i];
+            }
+            if(node.score == score)
+                return rank;
+        }
+        throw new IllegalArgumentException("Score isn't in the index");
+    }
+
+    /** How many scores are at least as long as the given time. */
+    public int countAtLeast(float time)
+    {
+        Node node = head;
+        int count = 0;
+        for(int i = level - 1; i >= 0; i--)
+        {
+            while(node.next[i] != null && node.next[i].score.time >= time)
+            {
+                count += node.width[i];
+                node = node.next[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies up to scores.length scores into scores, from the given rank
+     * down.
+     *
+     * @return how many were copied
+     */
+    public int get(int fromRank, Score[] scores)
+    {
+        if(fromRank < 1 || fromRank > size)
+            return 0;
+
+        Node node = head;
+        int rank = 0;
+        for(int i = level - 1; i >= 0; i--)
+        {
+            while(node.next[i] != null && rank + node.width[i] <= fromRank)
+            {
+                rank += node.width[i];
+                node = node.next[i];
+            }
+        }
+
+        int count = 0;
+        while(node != null && count < scores.length)
+        {
+            scores[count++] = node.score;
+            node = node.next[0];
+        }
+        return count;
+    }
+
+    /** A quarter of nodes reach each next level up. */
+    private int randomLevel()
+    {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+
+        int newLevel = 1 + Long.numberOfTrailingZeros(randomState | (1L << 62)) / 2;
+        return Math.min(newLevel, MAXIMUM_LEVEL);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.server;
+
+/**
+ * One player's best time on a board. Longer times rank higher; between
+ * equal times the one submitted first does.
+ */
+public class Score
+{
+    public final String player;
+    public final float time;
+    /** Order of submission across every board, it never repeats. */
+    public final long sequence;
+    public final long submittedMillis;
+
+    public Score(String player, float time, long sequence, long submittedMillis)
+    {
+        this.player = player;
+        this.time = time;
+        this.sequence = sequence;
+        this.submittedMillis = submittedMillis;
+    }
+
+    /** True if this ranks above the other. */
+    public boolean isAbove(Score other)
+    {
+        if(time != other.time)
+            return time > other.time;
+        return sequence < other.sequence;
+    }
+}
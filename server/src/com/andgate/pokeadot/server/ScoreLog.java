@@ -0,0 +1,270 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Every accepted score, appended to one file as it comes in. Loading
+ * plays the file back into the boards, keeping each player's best, so
+ * scores that were beaten later only take up space. Compaction rewrites
+ * the file with just the bests and swaps it in with a rename, so there's
+ * always a whole log on disk whenever the server stops.
+ *
+ * Each record is an int length, the record, and a CRC32 of it. A record
+ * cut short by a crash fails its length or CRC and is cut off on load.
+ */
+public class ScoreLog
+{
+    private static final String LOG_NAME = "scores.log";
+    private static final String COMPACTING_NAME = "scores.log.compacting";
+    private static final int MAGIC = 0x5041444C; // "PADL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAXIMUM_RECORD_SIZE = 4096;
+    // Don't bother compacting until this many records are dead weight.
+    private static final int MINIMUM_WASTE = 1000;
+
+    private final File file;
+    private final File compactingFile;
+    private final boolean sync;
+    private FileChannel channel;
+
+    // Records in the file, live or not.
+    private int records = 0;
+    private long highestSequence = 0L;
+
+    /**
+     * @param sync forces every record to disk before append() returns
+     */
+    public ScoreLog(File directory, boolean sync)
+    {
+        file = new File(directory, LOG_NAME);
+        compactingFile = new File(directory, COMPACTING_NAME);
+        this.sync = sync;
+    }
+
+    /**
+     * Plays the log back into the boards, making any that don't exist yet,
+     * and opens it for appending.
+     *
+     * @return the highest sequence in the log
+     */
+    public synchronized long load(Map<String, Leaderboard> boards) throws IOException
+    {
+        // A compaction that never got swapped in is only a copy.
+        if(compactingFile.exists() && !compactingFile.delete())
+            throw new IOException("Can't delete " + compactingFile);
+
+        long good = file.exists() ? read(boards) : 0L;
+
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        channel = output.getChannel();
+        if(good == 0L)
+        {
+            channel.truncate(0L);
+            writeHeader(channel);
+        }
+        else if(good < channel.size())
+        {
+            System.err.println("Cutting a torn record off the end of " + file);
+            channel.truncate(good);
+        }
+        channel.position(channel.size());
+        return highestSequence;
+    }
+
+    /** @return the offset after the last whole record, 0 if the header's bad */
+    private long read(Map<String, Leaderboard> boards) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(file + " isn't a score log");
+
+            long good = HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while(true)
+            {
+                int length;
+                byte[] record;
+                try
+                {
+                    length = in.readInt();
+                    if(length <= 0 || length > MAXIMUM_RECORD_SIZE)
+                        return good;
+                    record = new byte[length];
+                    in.readFully(record);
+
+                    crc.reset();
+                    crc.update(record, 0, length);
+                    if(in.readInt() != (int)crc.getValue())
+                        return good;
+                }
+                catch (EOFException e)
+                {
+                    return good;
+                }
+
+                DataInputStream fields = new DataInputStream(new ByteArrayInputStream(record));
+                String board = fields.readUTF();
+                Score score = new Score(fields.readUTF(), fields.readFloat(), fields.readLong(), fields.readLong());
+
+                Leaderboard leaderboard = boards.get(board);
+                if(leaderboard == null)
+                {
+                    leaderboard = new Leaderboard(board);
+                    boards.put(board, leaderboard);
+                }
+                leaderboard.submit(score);
+
+                highestSequence = Math.max(highestSequence, score.sequence);
+                records++;
+                good += 4 + length + 4;
+            }
+        }
+        catch (EOFException e)
+        {
+            // Not even a whole header.
+            return 0L;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public synchronized void append(String board, Score score) throws IOException
+    {
+        channel.write(encode(board, score));
+        if(sync)
+            channel.force(false);
+        records++;
+    }
+
+    /** True once most of the log is scores that have since been beaten. */
+    public synchronized boolean needsCompaction(int live)
+    {
+        int waste = records - live;
+        return waste >= MINIMUM_WASTE && waste >= live;
+    }
+
+    /**
+     * Rewrites the log with only the boards' current bests. Appends wait
+     * for it, so callers that append and then submit to a board have to
+     * do both while holding this log's lock, or a score could land in the
+     * boards after they were copied and be gone from the new log.
+     */
+    public synchronized void compact(Collection<Leaderboard> boards) throws IOException
+    {
+        int live = 0;
+        FileOutputStream out = new FileOutputStream(compactingFile);
+        try
+        {
+            FileChannel compacting = out.getChannel();
+            writeHeader(compacting);
+            for(Leaderboard board : boards)
+            {
+                for(Score score : board.getAll())
+                {
+                    compacting.write(encode(board.name, score));
+                    live++;
+                }
+            }
+            compacting.force(true);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        channel.close();
+        try
+        {
+            Files.move(compactingFile.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            records = live;
+        }
+        finally
+        {
+            // The move is atomic, so if it failed the old log is still whole
+            // and appends carry on there.
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            channel.position(channel.size());
+        }
+    }
+
+    public synchronized long size() throws IOException
+    {
+        return channel.size();
+    }
+
+    public synchronized void close() throws IOException
+    {
+        if(channel != null)
+            channel.close();
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.flip();
+        channel.write(header);
+    }
+
+    private static ByteBuffer encode(String board, Score score) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream fields = new DataOutputStream(bytes);
+        fields.writeUTF(board);
+        fields.writeUTF(score.player);
+        fields.writeFloat(score.time);
+        fields.writeLong(score.sequence);
+        fields.writeLong(score.submittedMillis);
+        byte[] record = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + record.length + 4);
+        buffer.putInt(record.length);
+        buffer.put(record);
+        buffer.putInt((int)crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+}
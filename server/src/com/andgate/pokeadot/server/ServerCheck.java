@@ -0,0 +1,160 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.server;
+
+import com.andgate.pokeadot.engine.EngineConfig;
+import com.andgate.pokeadot.engine.EngineConstants;
+import com.andgate.pokeadot.engine.GameEngine;
+import com.andgate.pokeadot.engine.GameMode;
+import com.andgate.pokeadot.engine.SessionRandom;
+import com.andgate.pokeadot.engine.SessionRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+
+/**
+ * Runs a leaderboard in a temporary directory and checks it turns away
+ * what it should. Exits with 1 if any check fails.
+ */
+public class ServerCheck
+{
+    private static final long DAY = 24L * 60L * 60L * 1000L;
+
+    private final String base;
+    private int failures = 0;
+
+    private ServerCheck(int port)
+    {
+        this.base = "http://127.0.0.1:" + port;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        File directory = File.createTempFile("leaderboard", "");
+        directory.delete();
+        directory.mkdirs();
+
+        LeaderboardServer server = new LeaderboardServer(directory, false);
+        server.start(0);
+        ServerCheck check = new ServerCheck(server.getPort());
+        try
+        {
+            check.run();
+        }
+        finally
+        {
+            server.stop();
+            for(File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+
+        if(check.failures > 0)
+        {
+            System.out.println(check.failures + " checks failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    private void run() throws IOException
+    {
+        long now = System.currentTimeMillis();
+        int daily = GameMode.DAILY.ordinal();
+
+        expect("daily replay on today's seed", 200,
+                post("/scores?player=check", record(SessionRandom.dailySeed(now), daily)));
+        expect("daily replay on yesterday's seed", 200,
+                post("/scores?player=check", record(SessionRandom.dailySeed(now - DAY), daily)));
+        expect("daily replay on a made up seed", 422,
+                post("/scores?player=check", record(0x5eedL, daily)));
+        expect("daily replay on next week's seed", 422,
+                post("/scores?player=check", record(SessionRandom.dailySeed(now + 7 * DAY), daily)));
+        expect("play replay on any seed", 200,
+                post("/scores?player=check", record(0x5eedL, GameMode.PLAY.ordinal())));
+
+        expect("rank of a time", 200, get("/rank/play?time=12.5"));
+        expect("rank of NaN", 400, get("/rank/play?time=NaN"));
+        expect("rank of Infinity", 400, get("/rank/play?time=Infinity"));
+        expect("rank of a negative time", 400, get("/rank/play?time=-1"));
+    }
+
+    /** A session nobody touches, it's over once the first dot is missed. */
+    private static byte[] record(long seed, int mode) throws IOException
+    {
+        EngineConfig config = new EngineConfig(GameEngine.Rules.SURVIVAL,
+                EngineConstants.WORLD_HEIGHT * 9.0f / 16.0f, EngineConstants.WORLD_HEIGHT);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameEngine engine = new GameEngine(config, seed);
+        engine.setRecorder(new SessionRecorder(Channels.newChannel(out), mode));
+        while(!engine.isOver())
+            engine.step();
+        engine.dispose();
+        return out.toByteArray();
+    }
+
+    private int get(String path) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection)new URL(base + path).openConnection();
+        try
+        {
+            return connection.getResponseCode();
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    private int post(String path, byte[] body) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection)new URL(base + path).openConnection();
+        try
+        {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            OutputStream stream = connection.getOutputStream();
+            stream.write(body);
+            stream.close();
+            return connection.getResponseCode();
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    private void expect(String name, int status, int actual)
+    {
+        if(actual == status)
+        {
+            System.out.println("ok    " + name);
+        }
+        else
+        {
+            System.out.println("FAIL  " + name + ": expected " + status + ", got " + actual);
+            failures++;
+        }
+    }
+}
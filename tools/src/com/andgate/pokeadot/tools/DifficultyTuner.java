@@ -0,0 +1,330 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.tools;
+
+import com.andgate.pokeadot.engine.EngineConfig;
+import com.andgate.pokeadot.engine.EngineConstants;
+import com.andgate.pokeadot.engine.GameEngine;
+import com.andgate.pokeadot.engine.SessionRandom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sweeps the spawn and lifetime ranges and reports how long a simulated
+ * player survives PLAY under each combination.
+ *
+ * Every configuration plays the same session seeds, so differences
+ * between rows come from the parameters and not from luck of the draw.
+ * Sessions are split into batches that run on a fork-join pool, one
+ * engine and one player per batch.
+ *
+ * Options, each range list is min:max[,min:max...]:
+ *   --spawn-time=     seconds between waves
+ *   --life-time=      seconds a pokable takes to shrink away
+ *   --spawn-count=    pokables per wave
+ *   --radius=         pokable radius, in world units
+ *   --sessions=N      sessions per configuration (default 1000)
+ *   --seed=N          first session seed (default 0)
+ *   --time-limit=S    sessions still alive after this are cut off (default 300)
+ *   --world=WxH       world size (default a 9:16 phone)
+ *   --reaction=M:D:T  reaction time mean, deviation and tail, in seconds
+ *   --aim=D           deviation of where pokes land
+ *
+ * Without range options each parameter is tried at 0.8, 1 and 1.25
+ * times its value in EngineConstants.
+ */
+public class DifficultyTuner
+{
+    private static final int BATCH_SIZE = 32;
+    private static final float[] DEFAULT_SCALES = {0.8f, 1.0f, 1.25f};
+    private static final float[] PERCENTILES = {0.1f, 0.25f, 0.5f, 0.75f, 0.9f};
+
+    private int sessions = 1000;
+    private long seed = 0L;
+    private float timeLimit = 300.0f;
+    private float worldWidth = EngineConstants.WORLD_HEIGHT * 9.0f / 16.0f;
+    private float worldHeight = EngineConstants.WORLD_HEIGHT;
+    private final SimulatedPlayer player = new SimulatedPlayer();
+
+    private float[][] spawnTimes;
+    private float[][] lifeTimes;
+    private float[][] spawnCounts;
+    private float[][] radii;
+
+    public static void main(String[] args)
+    {
+        DifficultyTuner tuner = new DifficultyTuner();
+        tuner.parse(args);
+        tuner.run();
+    }
+
+    private void parse(String[] args)
+    {
+        for(String option : args)
+        {
+            if(option.startsWith("--spawn-time="))
+                spawnTimes = parseRanges(value(option));
+            else if(option.startsWith("--life-time="))
+                lifeTimes = parseRanges(value(option));
+            else if(option.startsWith("--spawn-count="))
+                spawnCounts = parseRanges(value(option));
+            else if(option.startsWith("--radius="))
+                radii = parseRanges(value(option));
+            else if(option.startsWith("--sessions="))
+                sessions = Integer.parseInt(value(option));
+            else if(option.startsWith("--seed="))
+                seed = Long.parseLong(value(option));
+            else if(option.startsWith("--time-limit="))
+                timeLimit = Float.parseFloat(value(option));
+            else if(option.startsWith("--world="))
+            {
+                String[] size = value(option).split("x");
+                worldWidth = Float.parseFloat(size[0]);
+                worldHeight = Float.parseFloat(size[1]);
+            }
+            else if(option.startsWith("--reaction="))
+            {
+                String[] reaction = value(option).split(":");
+                player.reactionMean = Float.parseFloat(reaction[0]);
+                player.reactionDeviation = Float.parseFloat(reaction[1]);
+                player.reactionTail = Float.parseFloat(reaction[2]);
+            }
+            else if(option.startsWith("--aim="))
+                player.aimDeviation = Float.parseFloat(value(option));
+            else
+                throw new IllegalArgumentException("Unknown option: " + option);
+        }
+
+        if(spawnTimes == null)
+            spawnTimes = scaled(EngineConstants.MINIMUM_SPAWN_TIME, EngineConstants.MAXIMUM_SPAWN_TIME);
+        if(lifeTimes == null)
+            lifeTimes = scaled(EngineConstants.MINIMUM_LIFE_TIME, EngineConstants.MAXIMUM_LIFE_TIME);
+        if(spawnCounts == null)
+            spawnCounts = scaled(EngineConstants.MINIMUM_SPAWN_COUNT, EngineConstants.MAXIMUM_SPAWN_COUNT);
+        if(radii == null)
+            radii = scaled(EngineConstants.MINIMUM_CIRCLE_RADIUS, EngineConstants.MAXIMUM_CIRCLE_RADIUS);
+    }
+
+    private static String value(String option)
+    {
+        return option.substring(option.indexOf('=') + 1);
+    }
+
+    private static float[][] parseRanges(String list)
+    {
+        String[] ranges = list.split(",");
+        float[][] parsed = new float[ranges.length][];
+        for(int i = 0; i < ranges.length; i++)
+        {
+            String[] bounds = ranges[i].split(":");
+            parsed[i] = new float[]{Float.parseFloat(bounds[0]), Float.parseFloat(bounds[1])};
+        }
+        return parsed;
+    }
+
+    private static float[][] scaled(float minimum, float maximum)
+    {
+        float[][] ranges = new float[DEFAULT_SCALES.length][];
+        for(int i = 0; i < DEFAULT_SCALES.length; i++)
+            ranges[i] = new float[]{minimum * DEFAULT_SCALES[i], maximum * DEFAULT_SCALES[i]};
+        return ranges;
+    }
+
+    private List<EngineConfig> buildConfigs()
+    {
+        List<EngineConfig> configs = new ArrayList<EngineConfig>();
+
+        for(float[] spawnTime : spawnTimes)
+            for(float[] lifeTime : lifeTimes)
+                for(float[] spawnCount : spawnCounts)
+                    for(float[] radius : radii)
+                    {
+                        EngineConfig config = new EngineConfig(GameEngine.Rules.SURVIVAL, worldWidth, worldHeight);
+                        config.minimumSpawnTime = spawnTime[0];
+                        config.maximumSpawnTime = spawnTime[1];
+                        config.minimumLifeTime = lifeTime[0];
+                        config.maximumLifeTime = lifeTime[1];
+                        config.minimumSpawnCount = Math.max(Math.round(spawnCount[0]), 1);
+                        config.maximumSpawnCount = Math.max(Math.round(spawnCount[1]), config.minimumSpawnCount);
+                        config.minimumRadius = radius[0];
+                        config.maximumRadius = radius[1];
+                        configs.add(config);
+                    }
+
+        return configs;
+    }
+
+    private void run()
+    {
+        List<EngineConfig> configs = buildConfigs();
+        ForkJoinPool pool = new ForkJoinPool();
+
+        System.err.println(configs.size() + " configurations, " + sessions + " sessions each, on "
+                + pool.getParallelism() + " threads");
+        long start = System.nanoTime();
+
+        List<float[]> results = pool.invoke(new SweepTask(configs));
+
+        System.out.print("spawn_time,life_time,spawn_count,radius,sessions,cut_off,mean");
+        for(float percentile : PERCENTILES)
+            System.out.print(",p" + Math.round(percentile * 100.0f));
+        System.out.println();
+
+        for(int i = 0; i < configs.size(); i++)
+            System.out.println(report(configs.get(i), results.get(i)));
+
+        float seconds = (System.nanoTime() - start) / 1e9f;
+        System.err.println("done in " + seconds + "s");
+    }
+
+    private String report(EngineConfig config, float[] survival)
+    {
+        Arrays.sort(survival);
+
+        int cutOff = 0;
+        double total = 0.0;
+        for(float time : survival)
+        {
+            total += time;
+            if(time >= timeLimit)
+                cutOff++;
+        }
+
+        StringBuilder row = new StringBuilder();
+        row.append(range(config.minimumSpawnTime, config.maximumSpawnTime)).append(',')
+           .append(range(config.minimumLifeTime, config.maximumLifeTime)).append(',')
+           .append(config.minimumSpawnCount).append(':').append(config.maximumSpawnCount).append(',')
+           .append(range(config.minimumRadius, config.maximumRadius)).append(',')
+           .append(survival.length).append(',')
+           .append(cutOff).append(',')
+           .append(format(total / survival.length));
+
+        for(float percentile : PERCENTILES)
+            row.append(',').append(format(percentile(survival, percentile)));
+
+        return row.toString();
+    }
+
+    /** Nearest-rank percentile of sorted values. */
+    private static float percentile(float[] sorted, float fraction)
+    {
+        int rank = (int)Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.min(Math.max(rank, 0), sorted.length - 1)];
+    }
+
+    private static String range(float minimum, float maximum)
+    {
+        return format(minimum) + ":" + format(maximum);
+    }
+
+    private static String format(double value)
+    {
+        return String.format(Locale.US, "%.2f", value);
+    }
+
+    /** Plays every configuration, results come back in configuration order. */
+    private class SweepTask extends RecursiveTask<List<float[]>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<EngineConfig> configs;
+
+        SweepTask(List<EngineConfig> configs)
+        {
+            this.configs = configs;
+        }
+
+        @Override
+        protected List<float[]> compute()
+        {
+            List<SessionTask> tasks = new ArrayList<SessionTask>();
+            for(EngineConfig config : configs)
+                tasks.add(new SessionTask(config, 0, sessions));
+
+            invokeAll(tasks);
+
+            List<float[]> results = new ArrayList<float[]>();
+            for(SessionTask task : tasks)
+                results.add(task.join());
+            return results;
+        }
+    }
+
+    /** Survival times of a run of sessions under one configuration. */
+    private class SessionTask extends RecursiveTask<float[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final EngineConfig config;
+        private final int first;
+        private final int count;
+
+        SessionTask(EngineConfig config, int first, int count)
+        {
+            this.config = config;
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        protected float[] compute()
+        {
+            if(count <= BATCH_SIZE)
+                return play();
+
+            int half = count / 2;
+            SessionTask left = new SessionTask(config, first, half);
+            SessionTask right = new SessionTask(config, first + half, count - half);
+            right.fork();
+            float[] leftTimes = left.compute();
+            float[] rightTimes = right.join();
+
+            float[] times = new float[count];
+            System.arraycopy(leftTimes, 0, times, 0, half);
+            System.arraycopy(rightTimes, 0, times, half, count - half);
+            return times;
+        }
+
+        private float[] play()
+        {
+            SimulatedPlayer batchPlayer = new SimulatedPlayer(player);
+            float[] times = new float[count];
+
+            for(int i = 0; i < count; i++)
+            {
+                long sessionSeed = SessionRandom.mix(seed + first + i);
+                GameEngine engine = new GameEngine(config, sessionSeed);
+                batchPlayer.begin(engine, ~sessionSeed);
+
+                while(!engine.isOver() && engine.gameTime < timeLimit)
+                {
+                    engine.step();
+                    batchPlayer.act();
+                }
+
+                times[i] = Math.min(engine.gameTime, timeLimit);
+            }
+
+            return times;
+        }
+    }
+}
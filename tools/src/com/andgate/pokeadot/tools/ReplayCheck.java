@@ -0,0 +1,181 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.tools;
+
+import com.andgate.pokeadot.engine.EngineConfig;
+import com.andgate.pokeadot.engine.EngineConstants;
+import com.andgate.pokeadot.engine.GameEngine;
+import com.andgate.pokeadot.engine.Replayer;
+import com.andgate.pokeadot.engine.SessionRandom;
+import com.andgate.pokeadot.engine.SessionRecorder;
+import com.andgate.pokeadot.engine.SessionReplay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Plays recorded sessions out again and checks they end on the score
+ * they were recorded with, both straight through and after seeking back
+ * and forth through the keyframes.
+ *
+ * Usage: ReplayCheck [--simulate=N] [--seed=N] [file...]
+ *   file...       replays written by the game, replays/last.padr
+ *   --simulate=N  records N sessions of the simulated player in memory
+ *                 and replays each of them
+ *   --seed=N      first simulated session seed (default 0)
+ *   --out=DIR     also writes the simulated sessions to DIR, as test
+ *                 submissions for the verifier
+ *
+ * Exits with 1 if any replay didn't match.
+ */
+public class ReplayCheck
+{
+    private static final float TIME_LIMIT = 300.0f;
+    private static final int SEEKS = 8;
+
+    private final Random random = new Random(0L);
+
+    private int failures = 0;
+    private File out;
+
+    public static void main(String[] args) throws IOException
+    {
+        ReplayCheck check = new ReplayCheck();
+        int simulate = 0;
+        long seed = 0L;
+
+        for(String option : args)
+        {
+            if(option.startsWith("--simulate="))
+                simulate = Integer.parseInt(value(option));
+            else if(option.startsWith("--seed="))
+                seed = Long.parseLong(value(option));
+            else if(option.startsWith("--out="))
+            {
+                check.out = new File(value(option));
+                check.out.mkdirs();
+            }
+        }
+
+        for(String option : args)
+        {
+            if(!option.startsWith("--"))
+                check.checkFile(option);
+        }
+
+        if(simulate > 0)
+            check.checkSimulated(simulate, seed);
+
+        if(check.failures > 0)
+            System.exit(1);
+    }
+
+    private static String value(String option)
+    {
+        return option.substring(option.indexOf('=') + 1);
+    }
+
+    private void checkFile(String path) throws IOException
+    {
+        FileChannel channel = new FileInputStream(path).getChannel();
+        SessionReplay replay = SessionReplay.map(channel);
+        channel.close();
+        check(path, replay);
+    }
+
+    private void checkSimulated(int sessions, long seed) throws IOException
+    {
+        SimulatedPlayer player = new SimulatedPlayer();
+        long bytes = 0L;
+
+        for(int i = 0; i < sessions; i++)
+        {
+            long sessionSeed = SessionRandom.mix(seed + i);
+            EngineConfig config = new EngineConfig(GameEngine.Rules.SURVIVAL,
+                    EngineConstants.WORLD_HEIGHT * 9.0f / 16.0f, EngineConstants.WORLD_HEIGHT);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            GameEngine engine = new GameEngine(config, sessionSeed);
+            engine.setRecorder(new SessionRecorder(Channels.newChannel(out), 0));
+            player.begin(engine, ~sessionSeed);
+
+            while(!engine.isOver() && engine.gameTime < TIME_LIMIT)
+            {
+                engine.step();
+                player.act();
+            }
+            engine.dispose();
+
+            byte[] recording = out.toByteArray();
+            bytes += recording.length;
+            if(this.out != null)
+                write(new File(this.out, Long.toHexString(sessionSeed) + ".padr"), recording);
+            check("session " + Long.toHexString(sessionSeed) + " (" + recording.length + " bytes)",
+                  new SessionReplay(ByteBuffer.wrap(recording)));
+        }
+
+        System.out.println(sessions + " simulated sessions, " + bytes / sessions + " bytes each on average");
+    }
+
+    private static void write(File file, byte[] recording) throws IOException
+    {
+        FileOutputStream stream = new FileOutputStream(file);
+        try
+        {
+            stream.write(recording);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    private void check(String name, SessionReplay replay)
+    {
+        Replayer replayer = new Replayer(replay);
+        replayer.run();
+        boolean matches = replayer.matches();
+
+        // Seek about at random, then play out from wherever that left it.
+        Replayer seeker = new Replayer(replay);
+        long slowestSeek = 0L;
+        for(int i = 0; i < SEEKS; i++)
+        {
+            long start = System.nanoTime();
+            seeker.seek((long)(random.nextDouble() * replay.endTick));
+            slowestSeek = Math.max(slowestSeek, System.nanoTime() - start);
+        }
+        seeker.run();
+        boolean seekMatches = seeker.matches();
+
+        if(!matches || !seekMatches)
+            failures++;
+
+        System.out.println((matches && seekMatches ? "ok        " : "MISMATCH  ") + name
+                + ": " + replayer.describe()
+                + (seekMatches ? "" : "; after seeking " + seeker.describe())
+                + "; " + replay.keyframeCount + " keyframes, slowest seek "
+                + slowestSeek / 1000000.0 + "ms");
+    }
+}
@@ -0,0 +1,156 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.tools;
+
+import com.andgate.pokeadot.engine.GameEngine;
+import com.andgate.pokeadot.engine.PokableStore;
+import com.andgate.pokeadot.engine.SessionRandom;
+
+/**
+ * A stand-in for a person playing, for running sessions without one.
+ *
+ * The player works through one pokable at a time, always the one closest
+ * to expiring. Each poke costs a reaction time, drawn from an ex-Gaussian
+ * (a normal plus an exponential tail, the usual fit for human reaction
+ * times), then a movement time from Fitts' law for the distance from the
+ * last poke to the target. The poke lands with some normal scatter, so
+ * small pokables get missed now and then.
+ */
+public class SimulatedPlayer
+{
+    // Reaction time, in seconds.
+    public float reactionMean = 0.25f;
+    public float reactionDeviation = 0.04f;
+    public float reactionTail = 0.1f;
+
+    // Fitts' law, movement time = intercept + slope * log2(1 + distance / width).
+    public float fittsIntercept = 0.05f;
+    public float fittsSlope = 0.1f;
+
+    // Standard deviation of where a poke lands around its aim, in world units.
+    public float aimDeviation = 0.5f;
+
+    private final SessionRandom random = new SessionRandom(0L);
+
+    private GameEngine engine;
+    private float busyUntil;
+    private float touchX;
+    private float touchY;
+    private float lastX;
+    private float lastY;
+    private boolean aiming;
+
+    public SimulatedPlayer()
+    {
+    }
+
+    /** A player with the same model as another one. */
+    public SimulatedPlayer(SimulatedPlayer model)
+    {
+        reactionMean = model.reactionMean;
+        reactionDeviation = model.reactionDeviation;
+        reactionTail = model.reactionTail;
+        fittsIntercept = model.fittsIntercept;
+        fittsSlope = model.fittsSlope;
+        aimDeviation = model.aimDeviation;
+    }
+
+    /** Starts on a new session, with the hand in the middle of the world. */
+    public void begin(GameEngine engine, long seed)
+    {
+        this.engine = engine;
+        random.setSeed(seed);
+        busyUntil = 0.0f;
+        aiming = false;
+        lastX = engine.config.worldWidth / 2.0f;
+        lastY = engine.config.worldHeight / 2.0f;
+    }
+
+    /** Call after every engine step. */
+    public void act()
+    {
+        if(engine.gameTime < busyUntil)
+            return;
+
+        if(aiming)
+        {
+            engine.touch(touchX, touchY);
+            lastX = touchX;
+            lastY = touchY;
+            aiming = false;
+        }
+
+        int target = mostUrgent(engine.pokables);
+        if(target < 0)
+            return;
+
+        PokableStore pokables = engine.pokables;
+        float targetX = pokables.x[target];
+        float targetY = pokables.y[target];
+        float width = 2.0f * pokables.getHittableRadius(target);
+        float dx = targetX - lastX;
+        float dy = targetY - lastY;
+        float distance = (float)Math.sqrt(dx * dx + dy * dy);
+
+        float movement = fittsIntercept + fittsSlope * log2(1.0f + distance / width);
+        busyUntil = engine.gameTime + reactionTime() + movement;
+        touchX = targetX + gaussian() * aimDeviation;
+        touchY = targetY + gaussian() * aimDeviation;
+        aiming = true;
+    }
+
+    private static int mostUrgent(PokableStore pokables)
+    {
+        int urgent = -1;
+        float shortestLife = Float.MAX_VALUE;
+
+        for(int i = 0; i < pokables.size; i++)
+        {
+            if(pokables.state[i] != PokableStore.ACTIVE)
+                continue;
+
+            float life = pokables.getTimeLeft(i);
+            if(life < shortestLife)
+            {
+                shortestLife = life;
+                urgent = i;
+            }
+        }
+
+        return urgent;
+    }
+
+    private float reactionTime()
+    {
+        float normal = reactionMean + gaussian() * reactionDeviation;
+        float tail = (float)-Math.log(1.0f - random.nextFloat()) * reactionTail;
+        return Math.max(normal, 0.0f) + tail;
+    }
+
+    private float gaussian()
+    {
+        // Box-Muller, one half of the pair is enough here.
+        float u = 1.0f - random.nextFloat();
+        float v = random.nextFloat();
+        return (float)(Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v));
+    }
+
+    private static float log2(float value)
+    {
+        return (float)(Math.log(value) / Math.log(2.0));
+    }
+}
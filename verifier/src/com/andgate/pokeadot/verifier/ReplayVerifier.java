@@ -0,0 +1,225 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.verifier;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks submitted scores by playing their replays out again, on every
+ * core at once, with the same engine the game runs. A score is only as
+ * good as the touches behind it: the replay has to follow the official
+ * rules and end on exactly the tick, hits, misses and time it claims.
+ *
+ * Usage: ReplayVerifier [options] path...
+ *   path          a replay, or a directory searched for *.padr files
+ *   -             replays on standard input, each after its length as a
+ *                 4 byte big-endian int
+ *   --threads=N   verifying threads (default one per core)
+ *   --max-time=S  longest session worth checking (default 3600)
+ *   --quiet       only print rejections and the summary
+ *
+ * Prints a line per replay and a summary with the throughput. Exits with
+ * 1 if anything was rejected.
+ */
+public class ReplayVerifier
+{
+    private static final String EXTENSION = ".padr";
+    // Replays read ahead of the threads, per thread.
+    private static final int QUEUE_PER_THREAD = 4;
+    private static final int MAXIMUM_REPLAY_SIZE = 16 * 1024 * 1024;
+
+    private final SubmissionRules rules = new SubmissionRules();
+    private final PrintStream out = System.out;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean quiet = false;
+    private final List<String> paths = new ArrayList<String>();
+
+    private ThreadPoolExecutor pool;
+
+    private int accepted = 0;
+    private int rejected = 0;
+    private long ticks = 0L;
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        ReplayVerifier verifier = new ReplayVerifier();
+        verifier.parse(args);
+        if(verifier.paths.isEmpty())
+        {
+            System.err.println("Usage: ReplayVerifier [--threads=N] [--max-time=S] [--quiet] path... | -");
+            System.exit(2);
+        }
+
+        verifier.run();
+        if(verifier.rejected > 0)
+            System.exit(1);
+    }
+
+    private void parse(String[] args)
+    {
+        for(String option : args)
+        {
+            if(option.startsWith("--threads="))
+                threads = Math.max(1, Integer.parseInt(value(option)));
+            else if(option.startsWith("--max-time="))
+                rules.maximumTime = Float.parseFloat(value(option));
+            else if(option.equals("--quiet"))
+                quiet = true;
+            else if(option.startsWith("--"))
+                throw new IllegalArgumentException("Unknown option: " + option);
+            else
+                paths.add(option);
+        }
+    }
+
+    private static String value(String option)
+    {
+        return option.substring(option.indexOf('=') + 1);
+    }
+
+    private void run() throws IOException, InterruptedException
+    {
+        // A full queue makes the reading thread verify one itself, so
+        // reading never gets far ahead of verifying.
+        pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUE_PER_THREAD),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        long start = System.nanoTime();
+        for(String path : paths)
+        {
+            if(path.equals("-"))
+                submitStream(new DataInputStream(System.in));
+            else
+                submitPath(new File(path));
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        float seconds = (System.nanoTime() - start) / 1e9f;
+
+        int total = accepted + rejected;
+        out.println(String.format(Locale.US,
+                "%d replays in %.2fs on %d threads: %d accepted, %d rejected, %.0f per minute, %.0fx real time",
+                total, seconds, threads, accepted, rejected,
+                total / seconds * 60.0f,
+                ticks * rules.getStep() / seconds));
+    }
+
+    private void submitPath(File path) throws IOException
+    {
+        if(path.isDirectory())
+        {
+            File[] children = path.listFiles();
+            if(children == null)
+                throw new IOException("Can't list " + path);
+            Arrays.sort(children);
+            for(File child : children)
+            {
+                if(child.isDirectory() || child.getName().endsWith(EXTENSION))
+                    submitPath(child);
+            }
+            return;
+        }
+
+        FileChannel channel = new FileInputStream(path).getChannel();
+        try
+        {
+            long size = channel.size();
+            if(size > MAXIMUM_REPLAY_SIZE)
+            {
+                reject(path.getPath(), "too big");
+                return;
+            }
+
+            ByteBuffer data = ByteBuffer.allocate((int)size);
+            while(data.hasRemaining() && channel.read(data) >= 0) {}
+            data.flip();
+            submit(path.getPath(), data);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    private void submitStream(DataInputStream in) throws IOException
+    {
+        for(int count = 0; ; count++)
+        {
+            int length;
+            try
+            {
+                length = in.readInt();
+            }
+            catch (EOFException e)
+            {
+                return;
+            }
+
+            if(length < 0 || length > MAXIMUM_REPLAY_SIZE)
+                throw new IOException("Bad replay length " + length + " in stream");
+
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            submit("stdin#" + count, ByteBuffer.wrap(bytes));
+        }
+    }
+
+    private void submit(String name, ByteBuffer data)
+    {
+        pool.execute(new Verification(name, data, rules, this));
+    }
+
+    private synchronized void reject(String name, String reason)
+    {
+        rejected++;
+        out.println("rejected " + name + ": " + reason);
+    }
+
+    synchronized void report(Verification verification)
+    {
+        if(!verification.accepted)
+        {
+            reject(verification.name, verification.reason);
+            return;
+        }
+
+        accepted++;
+        ticks += verification.ticks;
+        if(!quiet)
+        {
+            out.println(String.format(Locale.US, "accepted %s: seed %016x, %.2fs, %d hits, %d missed",
+                    verification.name, verification.seed, verification.gameTime,
+                    verification.hits, verification.missed));
+        }
+    }
+}
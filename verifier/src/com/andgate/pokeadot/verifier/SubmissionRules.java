@@ -0,0 +1,120 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.verifier;
+
+import com.andgate.pokeadot.engine.EngineConfig;
+import com.andgate.pokeadot.engine.EngineConstants;
+import com.andgate.pokeadot.engine.GameEngine;
+import com.andgate.pokeadot.engine.GameMode;
+import com.andgate.pokeadot.engine.SessionReplay;
+
+/**
+ * What a replay has to look like before it's worth re-simulating: a
+ * PLAY or DAILY session under the rules the game ships with. Anything
+ * that decides how hard the game is has to match exactly. Only the world
+ * width may differ, it follows the shape of the player's screen.
+ */
+public class SubmissionRules
+{
+    // Narrower or wider than any phone or monitor held either way.
+    public float minimumAspect = 0.3f;
+    public float maximumAspect = 3.5f;
+    /** Sessions longer than this aren't worth the time to check. */
+    public float maximumTime = 3600.0f;
+
+    private final EngineConfig official
+            = new EngineConfig(GameEngine.Rules.SURVIVAL, 0.0f, EngineConstants.WORLD_HEIGHT);
+
+    /** Seconds per tick in official sessions. */
+    public float getStep()
+    {
+        return official.step;
+    }
+
+    /** @return why the replay can't be accepted, or null if it can be simulated */
+    public String check(SessionReplay replay)
+    {
+        if(replay.mode != GameMode.PLAY.ordinal()
+                && replay.mode != GameMode.DAILY.ordinal())
+            return "not a PLAY or DAILY session";
+
+        String config = checkConfig(replay.config);
+        if(config != null)
+            return config;
+
+        if(replay.gameTime > maximumTime
+                || replay.endTick * (double)official.step > maximumTime + official.step)
+            return "longer than " + maximumTime + "s";
+
+        return checkEvents(replay);
+    }
+
+    private String checkConfig(EngineConfig config)
+    {
+        if(config.rules != official.rules)
+            return "rules " + config.rules;
+        if(config.worldHeight != official.worldHeight)
+            return "world height " + config.worldHeight;
+        if(!isAspect(config.worldWidth, config.worldHeight))
+            return "world width " + config.worldWidth;
+        if(config.spawnBottom != official.spawnBottom
+                || config.minimumSpawnTime != official.minimumSpawnTime
+                || config.maximumSpawnTime != official.maximumSpawnTime
+                || config.minimumLifeTime != official.minimumLifeTime
+                || config.maximumLifeTime != official.maximumLifeTime
+                || config.minimumSpawnCount != official.minimumSpawnCount
+                || config.maximumSpawnCount != official.maximumSpawnCount
+                || config.minimumRadius != official.minimumRadius
+                || config.maximumRadius != official.maximumRadius
+                || config.spawnCandidates != official.spawnCandidates
+                || config.spawnAttempts != official.spawnAttempts
+                || config.timeLimit != official.timeLimit
+                || config.step != official.step)
+            return "unofficial spawn settings";
+        return null;
+    }
+
+    /**
+     * PLAY never caps the population, so a cap can only be an attempt to
+     * hold waves back. Resizes have to stay a believable screen.
+     */
+    private String checkEvents(SessionReplay replay)
+    {
+        replay.rewind();
+        while(replay.next())
+        {
+            if(replay.eventTick > replay.endTick)
+                return "events after the end";
+            if(replay.eventType == SessionReplay.CAP)
+                return "population cap at tick " + replay.eventTick;
+            if(replay.eventType == SessionReplay.WORLD
+                    && (replay.eventWorldHeight != official.worldHeight
+                        || !isAspect(replay.eventWorldWidth, replay.eventWorldHeight)))
+                return "resized to " + replay.eventWorldWidth + "x" + replay.eventWorldHeight;
+        }
+        if(replay.eventTick != replay.endTick)
+            return "events run to tick " + replay.eventTick + ", not " + replay.endTick;
+        replay.rewind();
+        return null;
+    }
+
+    private boolean isAspect(float width, float height)
+    {
+        float aspect = width / height;
+        return aspect >= minimumAspect && aspect <= maximumAspect;
+    }
+}
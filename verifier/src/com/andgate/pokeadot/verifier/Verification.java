@@ -0,0 +1,109 @@
+/*
+    This file is part of Poke.
+
+    Poke is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License.
+
+    Poke is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Poke.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.andgate.pokeadot.verifier;
+
+import com.andgate.pokeadot.engine.Replayer;
+import com.andgate.pokeadot.engine.SessionReplay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * One submitted replay and what became of it. run() decodes it, checks
+ * it against the SubmissionRules and plays it out from the first tick.
+ * Keyframes are never loaded, they're only the submitter's word for it.
+ */
+public class Verification implements Runnable
+{
+    public final String name;
+    private final ByteBuffer data;
+    private final SubmissionRules rules;
+    private final ReplayVerifier verifier;
+
+    public boolean accepted = false;
+    public String reason;
+    public long seed;
+    public int mode;
+    public float gameTime;
+    public int hits;
+    public int missed;
+    /** Steps the engine took, for throughput. */
+    public long ticks;
+
+    public Verification(String name, ByteBuffer data, SubmissionRules rules, ReplayVerifier verifier)
+    {
+        this.name = name;
+        this.data = data;
+        this.rules = rules;
+        this.verifier = verifier;
+    }
+
+    /** For a caller that wants the result itself instead of a report. */
+    public Verification(String name, ByteBuffer data, SubmissionRules rules)
+    {
+        this(name, data, rules, null);
+    }
+
+    @Override
+    public void run()
+    {
+        check();
+        if(verifier != null)
+            verifier.report(this);
+    }
+
+    /** Verifies the replay, the outcome is in accepted and reason. */
+    public void check()
+    {
+        try
+        {
+            verify();
+        }
+        catch (IOException e)
+        {
+            reason = e.getMessage();
+        }
+        catch (RuntimeException e)
+        {
+            // Events that decode to nonsense.
+            reason = "corrupt: " + e;
+        }
+    }
+
+    private void verify() throws IOException
+    {
+        SessionReplay replay = new SessionReplay(data);
+        seed = replay.seed;
+        mode = replay.mode;
+        gameTime = replay.gameTime;
+        hits = replay.hits;
+        missed = replay.missed;
+
+        reason = rules.check(replay);
+        if(reason != null)
+            return;
+
+        Replayer replayer = new Replayer(replay);
+        replayer.run();
+        ticks = replayer.engine.tick;
+
+        if(replayer.matches())
+            accepted = true;
+        else
+            reason = "doesn't replay: " + replayer.describe();
+    }
+}